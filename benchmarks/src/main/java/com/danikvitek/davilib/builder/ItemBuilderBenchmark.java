@@ -0,0 +1,70 @@
+package com.danikvitek.davilib.builder;
+
+import be.seeseemelk.mockbukkit.MockBukkit;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of {@link ItemBuilder} construction and building, compared to copying an {@link ItemTemplate}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ItemBuilderBenchmark {
+    private ItemTemplate template;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        MockBukkit.mock();
+        template = newBuilder().buildTemplate();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        MockBukkit.unmock();
+    }
+
+    @Benchmark
+    public ItemBuilder construct() {
+        return new ItemBuilder(Material.GRAY_STAINED_GLASS_PANE);
+    }
+
+    @Benchmark
+    public ItemStack constructAndBuild() {
+        return newBuilder().build();
+    }
+
+    @Benchmark
+    public ItemTemplate buildTemplate() {
+        return newBuilder().buildTemplate();
+    }
+
+    @Benchmark
+    public ItemStack copyTemplate() {
+        return template.newItem();
+    }
+
+    private static ItemBuilder newBuilder() {
+        return new ItemBuilder(Material.GRAY_STAINED_GLASS_PANE)
+                .setDisplayName(" ")
+                .setLore("First line", "Second line", "Third line")
+                .setCustomModelData(42);
+    }
+}
@@ -0,0 +1,104 @@
+package com.danikvitek.davilib.menu;
+
+import be.seeseemelk.mockbukkit.MockBukkit;
+import be.seeseemelk.mockbukkit.entity.PlayerMock;
+import org.bukkit.Material;
+import org.bukkit.event.inventory.ClickType;
+import org.bukkit.event.inventory.InventoryAction;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.inventory.InventoryView;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of {@link Menu} slot storage, click dispatch, opening and {@link ChestMenu} grid addressing
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MenuBenchmark {
+    private PlayerMock player;
+    private BenchmarkMenu menu;
+    private Button button;
+    private InventoryClickEvent click;
+    private int slot;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        player = MockBukkit.mock().addPlayer();
+        button = new CountingButton();
+        menu = new BenchmarkMenu();
+        for (int i = 0; i < menu.getSize(); i++) menu.setButton(i, button);
+        menu.flush();
+        InventoryView view = player.openInventory(menu.getInventory());
+        click = new InventoryClickEvent(view, InventoryType.SlotType.CONTAINER, 13, ClickType.LEFT, InventoryAction.PICKUP_ALL);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        MockBukkit.unmock();
+    }
+
+    @Benchmark
+    public Menu setButton() {
+        slot = (slot + 1) % 54;
+        return menu.setButton(slot, button);
+    }
+
+    @Benchmark
+    public BenchmarkMenu setButtonByCoordinates() {
+        slot = (slot + 1) % 54;
+        return menu.setButton(slot % 9, slot / 9, button);
+    }
+
+    @Benchmark
+    public void performClick() {
+        menu.performClick(click);
+    }
+
+    @Benchmark
+    public void openFullRedraw() {
+        menu.invalidateAll();
+        menu.open(player);
+    }
+
+    @Benchmark
+    public void openUnchanged() {
+        menu.open(player);
+    }
+
+    static final class BenchmarkMenu extends DoubleChestMenu<BenchmarkMenu> {
+        BenchmarkMenu() {
+            super("Benchmark");
+        }
+    }
+
+    static final class CountingButton extends Button {
+        int clicks;
+
+        CountingButton() {
+            super(Material.STONE);
+        }
+
+        @Override
+        public void onClick(Menu menu, InventoryClickEvent event) {
+            clicks++;
+        }
+    }
+}
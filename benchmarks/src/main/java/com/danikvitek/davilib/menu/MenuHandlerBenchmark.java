@@ -0,0 +1,82 @@
+package com.danikvitek.davilib.menu;
+
+import be.seeseemelk.mockbukkit.MockBukkit;
+import be.seeseemelk.mockbukkit.ServerMock;
+import be.seeseemelk.mockbukkit.entity.PlayerMock;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of {@link MenuHandler} lookups under concurrent load and of the open/close cycle
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MenuHandlerBenchmark {
+    @Param({"100", "2000"})
+    public int players;
+
+    private MenuHandler handler;
+    private PlayerMock[] onlinePlayers;
+    private UUID[] playerIds;
+    private MenuBenchmark.BenchmarkMenu menu;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ServerMock server = MockBukkit.mock();
+        handler = new MenuHandler();
+        menu = new MenuBenchmark.BenchmarkMenu();
+        onlinePlayers = new PlayerMock[players];
+        playerIds = new UUID[players];
+        for (int i = 0; i < players; i++) {
+            onlinePlayers[i] = server.addPlayer();
+            playerIds[i] = onlinePlayers[i].getUniqueId();
+            // half of the players have a menu opened
+            if (i % 2 == 0) handler.openMenu(onlinePlayers[i], new MenuBenchmark.BenchmarkMenu());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        MockBukkit.unmock();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Optional<Menu> getMenu() {
+        return handler.getMenu(playerIds[ThreadLocalRandom.current().nextInt(players)]);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean hasMenuOpened() {
+        return handler.hasMenuOpened(playerIds[ThreadLocalRandom.current().nextInt(players)]);
+    }
+
+    @Benchmark
+    public void openAndClose() {
+        PlayerMock player = onlinePlayers[1];
+        handler.openMenu(player, menu);
+        handler.closeMenu(player);
+    }
+}
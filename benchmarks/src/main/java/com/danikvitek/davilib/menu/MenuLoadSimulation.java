@@ -0,0 +1,308 @@
+package com.danikvitek.davilib.menu;
+
+import be.seeseemelk.mockbukkit.MockBukkit;
+import be.seeseemelk.mockbukkit.ServerMock;
+import be.seeseemelk.mockbukkit.entity.PlayerMock;
+import org.bukkit.Material;
+import org.bukkit.event.inventory.ClickType;
+import org.bukkit.event.inventory.InventoryAction;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.InventoryView;
+import org.bukkit.plugin.Plugin;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Macro load simulation of {@link MenuHandler}: thousands of scripted players open, navigate, spam-click,
+ * close and quit menus on a MockBukkit server, while the time is driven tick by tick with a {@link ManualMenuScheduler}.
+ * The {@link ClickLimiter} runs on the simulated time too, so spam clicks are limited as they would be at 20 TPS,
+ * and the clicks it rejects are reported separately from the dispatched ones.
+ * <p>
+ * Reports the cost of a tick, the allocation rate of the tick thread, the retained heap per open menu
+ * and the cost of {@link MenuHandler#closeAll()} at shutdown.
+ * <p>
+ * Run with {@code java -cp target/benchmarks.jar com.danikvitek.davilib.menu.MenuLoadSimulation
+ * [--players 2000] [--ticks 1200] [--readers 2] [--seed 42]}
+ */
+public final class MenuLoadSimulation {
+    private static final int NAVIGATION_BUTTONS = 9;
+    private static final int BACK_SLOT = 49;
+    private static final long TICK_NANOS = Duration.ofMillis(50).toNanos();
+    /**
+     * Interval between the spam clicks of a player, as of an autoclicker at 25 clicks per second
+     */
+    private static final long SPAM_INTERVAL_NANOS = Duration.ofMillis(40).toNanos();
+
+    private final int players;
+    private final int ticks;
+    private final int readers;
+    private final Random random;
+
+    private ServerMock server;
+    private ManualMenuScheduler scheduler;
+    private MenuHandler handler;
+    private SimulatedPlayer[] simulated;
+    private Icon categoryIcon;
+    private Icon itemIcon;
+    private Icon backIcon;
+
+    private final LongAdder clicks = new LongAdder();
+    private final LongAdder rejectedClicks = new LongAdder();
+    /**
+     * Simulated time of the current click, in nanoseconds
+     */
+    private long now;
+
+    private MenuLoadSimulation(final int players, final int ticks, final int readers, final long seed) {
+        this.players = players;
+        this.ticks = ticks;
+        this.readers = readers;
+        this.random = new Random(seed);
+    }
+
+    public static void main(final String[] args) throws InterruptedException {
+        int players = 2000;
+        int ticks = 1200;
+        int readers = 2;
+        long seed = 42;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--players":
+                    players = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--ticks":
+                    ticks = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--readers":
+                    readers = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[i + 1]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        new MenuLoadSimulation(players, ticks, readers, seed).run();
+    }
+
+    private void run() throws InterruptedException {
+        server = MockBukkit.mock();
+        try {
+            final Plugin plugin = MockBukkit.createMockPlugin();
+            scheduler = new ManualMenuScheduler();
+            handler = new MenuHandler(plugin, scheduler);
+            server.getPluginManager().registerEvents(handler.getListeners(), plugin);
+            handler.setClickLimiter(new CountingClickLimiter());
+
+            categoryIcon = Icon.of(new ItemStack(Material.CHEST));
+            itemIcon = Icon.of(new ItemStack(Material.DIAMOND));
+            backIcon = Icon.of(new ItemStack(Material.ARROW));
+
+            simulated = new SimulatedPlayer[players];
+            for (int i = 0; i < players; i++) simulated[i] = new SimulatedPlayer(server.addPlayer());
+
+            System.out.printf("Simulating %d players for %d ticks with %d concurrent readers%n", players, ticks, readers);
+            reportRetainedHeap();
+            simulateTicks();
+            reportShutdown();
+        } finally {
+            MockBukkit.unmock();
+        }
+    }
+
+    /**
+     * Opens a main menu for every player and measures the heap growth
+     */
+    private void reportRetainedHeap() {
+        final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        final long before = usedHeapAfterGc(memory);
+        final List<Menu> menus = new ArrayList<>(players);
+        for (final SimulatedPlayer player : simulated) {
+            final Menu menu = mainMenu();
+            menus.add(menu);
+            scheduler.execute(player.player, () -> handler.openMenu(player.player, menu));
+        }
+        scheduler.runPending();
+        final long after = usedHeapAfterGc(memory);
+        final double estimated = menus.stream().mapToLong(Menu::estimateRetainedSize).average().orElse(0);
+        System.out.printf("Retained heap per open menu: %.0f B measured, %.0f B estimated%n",
+                (after - before) / (double) players, estimated);
+        handler.closeAll();
+        scheduler.runPending();
+    }
+
+    private void simulateTicks() throws InterruptedException {
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final List<Thread> readerThreads = new ArrayList<>();
+        final LongAdder lookups = new LongAdder();
+        for (int i = 0; i < readers; i++) {
+            final Thread reader = new Thread(() -> {
+                final Random random = new Random();
+                while (running.get()) {
+                    handler.hasMenuOpened(simulated[random.nextInt(players)].id);
+                    lookups.increment();
+                }
+            }, "reader-" + i);
+            reader.setDaemon(true);
+            reader.start();
+            readerThreads.add(reader);
+        }
+
+        final LatencyHistogram tickCost = new LatencyHistogram();
+        final com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final long threadId = Thread.currentThread().getId();
+        final long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        final long start = System.nanoTime();
+        for (int tick = 0; tick < ticks; tick++) {
+            final long tickStart = System.nanoTime();
+            final long tickTime = tick * TICK_NANOS;
+            for (final SimulatedPlayer player : simulated)
+                if (player.online) scheduler.execute(player.player, () -> player.step(tickTime));
+                else if (random.nextInt(200) == 0) player.rejoin();
+            scheduler.tick();
+            tickCost.record(System.nanoTime() - tickStart);
+        }
+        final long elapsed = System.nanoTime() - start;
+        final long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        running.set(false);
+        for (final Thread reader : readerThreads) reader.join();
+
+        System.out.printf("Tick cost: mean %.3f ms, p50 %.3f ms, p99 %.3f ms, max %.3f ms%n",
+                tickCost.getMeanNanos() / 1e6,
+                tickCost.getQuantileNanos(0.5) / 1e6,
+                tickCost.getQuantileNanos(0.99) / 1e6,
+                tickCost.getMaxNanos() / 1e6);
+        System.out.printf("Allocation: %.1f KB per tick, %.1f MB/s%n",
+                allocated / 1024.0 / ticks, allocated / 1048576.0 / (elapsed / 1e9));
+        System.out.printf("Clicks dispatched: %d, rejected by the limiter: %d, concurrent lookups: %d%n",
+                clicks.sum(), rejectedClicks.sum(), lookups.sum());
+    }
+
+    private void reportShutdown() {
+        int open = 0;
+        for (final SimulatedPlayer player : simulated)
+            if (player.online && handler.hasMenuOpened(player.id)) open++;
+        final long start = System.nanoTime();
+        handler.closeAll();
+        scheduler.runPending();
+        System.out.printf("closeAll() of %d open menus: %.3f ms%n", open, (System.nanoTime() - start) / 1e6);
+    }
+
+    private static long usedHeapAfterGc(final MemoryMXBean memory) {
+        for (int i = 0; i < 3; i++) System.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    private SimulationMenu mainMenu() {
+        final SimulationMenu menu = new SimulationMenu();
+        for (int slot = 0; slot < NAVIGATION_BUTTONS; slot++)
+            menu.setButton(slot, categoryIcon, (clicked, event) -> {
+                clicks.increment();
+                handler.openMenu((org.bukkit.entity.Player) event.getWhoClicked(), categoryMenu());
+            });
+        return menu;
+    }
+
+    private SimulationMenu categoryMenu() {
+        final SimulationMenu menu = new SimulationMenu();
+        menu.fill(SlotRegion.rect(0, 0, 8, 4), itemIcon, (clicked, event) -> clicks.increment());
+        menu.setButton(BACK_SLOT, backIcon, (clicked, event) -> {
+            clicks.increment();
+            handler.back((org.bukkit.entity.Player) event.getWhoClicked());
+        });
+        return menu;
+    }
+
+    /**
+     * Player that follows a random script: idle, open, navigate, spam-click, close or quit
+     */
+    private final class SimulatedPlayer {
+        private PlayerMock player;
+        private UUID id;
+        private boolean online = true;
+        /**
+         * Simulated time of the last click of the player. It runs ahead of the ticks while the player spams
+         */
+        private long clock;
+
+        private SimulatedPlayer(final PlayerMock player) {
+            this.player = player;
+            this.id = player.getUniqueId();
+        }
+
+        /**
+         * @param tickTime the simulated time of the tick
+         */
+        private void step(final long tickTime) {
+            clock = Math.max(clock, tickTime);
+            now = clock;
+            final int roll = random.nextInt(1000);
+            if (roll < 700) return;
+            if (!handler.hasMenuOpened(id)) {
+                if (roll < 900) handler.openMenu(player, mainMenu());
+                return;
+            }
+            if (roll < 850) click(random.nextInt(NAVIGATION_BUTTONS));
+            else if (roll < 900) click(BACK_SLOT);
+            else if (roll < 980) for (int i = 0; i < 10; i++) {
+                if (i > 0) now = clock += SPAM_INTERVAL_NANOS;
+                click(random.nextInt(45));
+            }
+            else if (roll < 995) handler.closeMenu(player);
+            else quit();
+        }
+
+        private void click(final int slot) {
+            final InventoryView view = player.getOpenInventory();
+            final InventoryClickEvent event = new InventoryClickEvent(
+                    view, InventoryType.SlotType.CONTAINER, slot, ClickType.LEFT, InventoryAction.PICKUP_ALL);
+            server.getPluginManager().callEvent(event);
+        }
+
+        private void quit() {
+            // fires the quit event and removes the player from the server, so the player list does not grow
+            player.disconnect();
+            online = false;
+        }
+
+        private void rejoin() {
+            player = server.addPlayer();
+            id = player.getUniqueId();
+            online = true;
+        }
+    }
+
+    /**
+     * Limiter on the simulated time, that counts the rejected clicks
+     */
+    private final class CountingClickLimiter extends ClickLimiter {
+        private CountingClickLimiter() {
+            super(10, 5, Duration.ofMillis(50), Duration.ofMillis(250), () -> now);
+        }
+
+        @Override
+        public boolean tryAcquire(final UUID playerId, final int slot, final ClickType clickType, final ClickHandler handler) {
+            final boolean acquired = super.tryAcquire(playerId, slot, clickType, handler);
+            if (!acquired) rejectedClicks.increment();
+            return acquired;
+        }
+    }
+
+    private static final class SimulationMenu extends DoubleChestMenu<SimulationMenu> {
+        private SimulationMenu() {
+            super("Simulation");
+        }
+    }
+}
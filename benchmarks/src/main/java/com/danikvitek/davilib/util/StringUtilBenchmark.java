@@ -0,0 +1,67 @@
+package com.danikvitek.davilib.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of {@link StringUtil#copyPartialInnerMatches(String, List)} over large lists,
+ * as done by tab completion of player names and item ids, compared to {@link CompletionIndex}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StringUtilBenchmark {
+    private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyz_";
+
+    @Param({"5000", "20000"})
+    public int size;
+
+    @Param({"a", "ston", "diamond_sw"})
+    public String query;
+
+    private List<String> entries;
+    private CompletionIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        entries = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            StringBuilder entry = new StringBuilder();
+            int length = 4 + random.nextInt(16);
+            for (int j = 0; j < length; j++) entry.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+            entries.add(entry.toString());
+        }
+        entries.set(size / 2, "stone");
+        entries.set(size / 3, "diamond_sword");
+        index = CompletionIndex.of(entries, false);
+    }
+
+    @Benchmark
+    public List<String> copyPartialInnerMatches() {
+        return StringUtil.copyPartialInnerMatches(query, entries);
+    }
+
+    @Benchmark
+    public List<String> completionIndex() {
+        return index.complete(query, 100);
+    }
+}
@@ -1,9 +1,93 @@
 package com.danikvitek.davilib;
 
+import com.danikvitek.davilib.builder.SkullProfileCache;
+import com.danikvitek.davilib.command.DaViLibCommand;
+import com.danikvitek.davilib.menu.MenuHandler;
+import com.danikvitek.davilib.menu.PluginMenuHandler;
+import org.bukkit.Bukkit;
+import org.bukkit.command.PluginCommand;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.ServicePriority;
 import org.bukkit.plugin.java.JavaPlugin;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.logging.Level;
 
 /**
  * Main plugin class
  */
 public final class DaViLib extends JavaPlugin {
+    private MenuHandler menuHandler;
+    private SkullProfileCache skullProfileCache;
+
+    @Override
+    public void onEnable() {
+        this.menuHandler = new MenuHandler(this);
+        this.menuHandler.share();
+        getServer().getPluginManager().registerEvents(this.menuHandler.getListeners(), this);
+        getServer().getServicesManager().register(MenuHandler.class, this.menuHandler, this, ServicePriority.Normal);
+
+        this.skullProfileCache = new SkullProfileCache(this);
+        getServer().getServicesManager().register(SkullProfileCache.class, this.skullProfileCache, this, ServicePriority.Normal);
+        getServer().getScheduler().runTaskAsynchronously(this, () -> {
+            try {
+                this.skullProfileCache.load();
+            } catch (IOException e) {
+                getLogger().log(Level.WARNING, "Could not load skull profiles", e);
+            }
+        });
+
+        final PluginCommand command = getCommand("davilib");
+        if (command != null) {
+            final DaViLibCommand executor = new DaViLibCommand(this.menuHandler);
+            command.setExecutor(executor);
+            command.setTabCompleter(executor);
+        }
+    }
+
+    @Override
+    public void onDisable() {
+        if (this.menuHandler != null) this.menuHandler.close();
+        if (this.skullProfileCache != null) {
+            try {
+                this.skullProfileCache.save();
+            } catch (IOException e) {
+                getLogger().log(Level.WARNING, "Could not save skull profiles", e);
+            }
+        }
+        getServer().getServicesManager().unregisterAll(this);
+    }
+
+    /**
+     * @return the menu handler shared by all the plugins. Its listeners are already registered and its settings are fixed
+     * @throws IllegalStateException if DaViLib is not enabled
+     * @apiNote Add DaViLib to {@code depend} of your plugin.yml. Prefer {@link #getMenuHandler(Plugin)},
+     * as menus opened here are recognized as the ones of your plugin only by the class that defines them
+     */
+    public static @NotNull MenuHandler getMenuHandler() {
+        final MenuHandler handler = Bukkit.getServicesManager().load(MenuHandler.class);
+        if (handler == null) throw new IllegalStateException("DaViLib is not enabled");
+        return handler;
+    }
+
+    /**
+     * @param plugin the plugin to get the view of
+     * @return the view of the shared menu handler for the plugin. Menus opened through it belong to the plugin,
+     * so they are closed, and their pending opens and async clicks cancelled, when it disables
+     * @throws IllegalStateException if DaViLib is not enabled
+     */
+    public static @NotNull PluginMenuHandler getMenuHandler(final @NotNull Plugin plugin) {
+        return getMenuHandler().forPlugin(plugin);
+    }
+
+    /**
+     * @return the skull profile cache shared by all the plugins, persisted in the data folder of DaViLib
+     * @throws IllegalStateException if DaViLib is not enabled
+     */
+    public static @NotNull SkullProfileCache getSkullProfileCache() {
+        final SkullProfileCache cache = Bukkit.getServicesManager().load(SkullProfileCache.class);
+        if (cache == null) throw new IllegalStateException("DaViLib is not enabled");
+        return cache;
+    }
 }
@@ -0,0 +1,124 @@
+package com.danikvitek.davilib.builder;
+
+import lombok.NonNull;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Text with {@code {key}} placeholders, parsed once into literal parts and keys.
+ * Rendering only concatenates the parts with the values, without searching for placeholders again.
+ * <p>
+ * A placeholder is a key of letters, digits, {@code _}, {@code -}, {@code .} or {@code :} in curly braces.
+ * Any other brace is kept as it is
+ */
+public final class CompiledText {
+    /**
+     * Literal parts around the placeholders. There is always one more part than keys
+     */
+    private final String[] parts;
+    private final String[] keys;
+    private final int literalLength;
+
+    private CompiledText(final @NotNull String[] parts, final @NotNull String[] keys) {
+        this.parts = parts;
+        this.keys = keys;
+        int literalLength = 0;
+        for (final String part : parts) literalLength += part.length();
+        this.literalLength = literalLength;
+    }
+
+    /**
+     * Fabric method
+     *
+     * @param template the text with placeholders
+     * @return the compiled text
+     */
+    public static @NotNull CompiledText compile(final @NotNull @NonNull String template) {
+        final List<String> parts = new ArrayList<>();
+        final List<String> keys = new ArrayList<>();
+        int partStart = 0;
+        for (int open = template.indexOf('{'); open >= 0; open = template.indexOf('{', open + 1)) {
+            int close = open + 1;
+            while (close < template.length() && isKeyChar(template.charAt(close))) close++;
+            if (close == open + 1 || close == template.length() || template.charAt(close) != '}') continue;
+            parts.add(template.substring(partStart, open));
+            keys.add(template.substring(open + 1, close));
+            partStart = close + 1;
+            open = close;
+        }
+        parts.add(template.substring(partStart));
+        return new CompiledText(parts.toArray(new String[0]), keys.toArray(new String[0]));
+    }
+
+    private static boolean isKeyChar(final char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '-' || c == '.' || c == ':';
+    }
+
+    /**
+     * @return keys of the placeholders in order of appearance. A key may occur several times
+     */
+    public @NotNull List<String> getKeys() {
+        return Collections.unmodifiableList(Arrays.asList(this.keys));
+    }
+
+    /**
+     * @return {@code true} if the text has no placeholders
+     */
+    public boolean isConstant() {
+        return this.keys.length == 0;
+    }
+
+    /**
+     * @param values the function that gives values of the placeholders.
+     *               If it returns {@code null}, the placeholder is kept as it is
+     * @return the text with the placeholders replaced
+     */
+    public @NotNull String render(final @NotNull @NonNull Function<? super String, ?> values) {
+        if (this.keys.length == 0) return this.parts[0];
+        final Object[] resolved = new Object[this.keys.length];
+        for (int i = 0; i < this.keys.length; i++) resolved[i] = values.apply(this.keys[i]);
+        return this.render(resolved, null);
+    }
+
+    /**
+     * @param values  resolved values
+     * @param indices index into {@code values} of every placeholder. If {@code null} then values are given in order
+     * @return the text with the placeholders replaced
+     */
+    @NotNull String render(final @NotNull Object[] values, final int @Nullable [] indices) {
+        if (this.keys.length == 0) return this.parts[0];
+        final StringBuilder builder = new StringBuilder(this.literalLength + 16 * this.keys.length);
+        builder.append(this.parts[0]);
+        for (int i = 0; i < this.keys.length; i++) {
+            final Object value = values[indices != null ? indices[i] : i];
+            if (value != null) builder.append(value);
+            else builder.append('{').append(this.keys[i]).append('}');
+            builder.append(this.parts[i + 1]);
+        }
+        return builder.toString();
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (!(o instanceof CompiledText)) return false;
+        final CompiledText that = (CompiledText) o;
+        return Arrays.equals(this.parts, that.parts) && Arrays.equals(this.keys, that.keys);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(this.parts) + Arrays.hashCode(this.keys);
+    }
+
+    @Override
+    public String toString() {
+        return this.render(new Object[this.keys.length], null);
+    }
+}
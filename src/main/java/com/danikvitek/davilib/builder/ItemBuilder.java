@@ -3,6 +3,7 @@ package com.danikvitek.davilib.builder;
 import com.google.common.collect.Multimap;
 import lombok.Getter;
 import lombok.NonNull;
+import org.bukkit.Bukkit;
 import org.bukkit.Color;
 import org.bukkit.Material;
 import org.bukkit.OfflinePlayer;
@@ -17,6 +18,7 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * The class for easy building of {@link ItemStack} and {@link ItemMeta}.
@@ -25,6 +27,8 @@ public class ItemBuilder implements Builder<ItemStack> {
     private final ItemStack itemStack;
     @Getter
     private final ItemMeta itemMeta;
+    private @Nullable CompiledText displayNameTemplate;
+    private @Nullable List<CompiledText> loreTemplate;
 
     /**
      * @param material the material of the builder you are building.
@@ -61,6 +65,13 @@ public class ItemBuilder implements Builder<ItemStack> {
         this(baseItemStack, 1);
     }
 
+    /**
+     * @param template the template to base the builder on.
+     */
+    public ItemBuilder(final @NotNull @NonNull ItemTemplate template) {
+        this(template.prototype(), template.getAmount());
+    }
+
     /**
      * Sets the display name of the builder, this name can be viewed by hovering over the
      * builder in your inventory or holding it in your hand.
@@ -178,6 +189,87 @@ public class ItemBuilder implements Builder<ItemStack> {
         return this;
     }
 
+    /**
+     * Sets the display name template, rendered for every context by {@link #buildPersonalized(PlaceholderResolver)}.
+     * It overrides {@link #setDisplayName(String)} in personalized items.
+     *
+     * @param template the name with {@code {key}} placeholders. If {@code null} then the template will be removed
+     * @return this ItemBuilder.
+     */
+    public ItemBuilder setDisplayNameTemplate(final @Nullable String template) {
+        this.displayNameTemplate = template != null ? CompiledText.compile(template) : null;
+        return this;
+    }
+
+    /**
+     * Sets the lore template, rendered for every context by {@link #buildPersonalized(PlaceholderResolver)}.
+     * It overrides {@link #setLore(List)} in personalized items.
+     *
+     * @param lines the lines with {@code {key}} placeholders
+     * @return this ItemBuilder.
+     */
+    public ItemBuilder setLoreTemplate(final @NotNull String... lines) {
+        return this.setLoreTemplate(List.of(lines));
+    }
+
+    /**
+     * Sets the lore template, rendered for every context by {@link #buildPersonalized(PlaceholderResolver)}.
+     * It overrides {@link #setLore(List)} in personalized items.
+     *
+     * @param lines the lines with {@code {key}} placeholders. If {@code null} then the template will be removed
+     * @return this ItemBuilder.
+     */
+    public ItemBuilder setLoreTemplate(final @Nullable List<String> lines) {
+        this.loreTemplate = lines != null
+                ? lines.stream().map(CompiledText::compile).collect(Collectors.toUnmodifiableList())
+                : null;
+        return this;
+    }
+
+    /**
+     * Creates the item which name and lore templates are rendered for every context.
+     * The templates are compiled once, so rendering does no parsing.
+     *
+     * @param resolver the resolver of the placeholder values
+     * @param <C>      type of the context
+     * @return the personalized item.
+     */
+    public <C> @NotNull PersonalizedItem<C> buildPersonalized(final @NotNull @NonNull PlaceholderResolver<? super C> resolver) {
+        return new PersonalizedItem<>(this.build().clone(), resolver, this.displayNameTemplate, this.loreTemplate);
+    }
+
+    /**
+     * Sets the owner of the skull from the cache, so the textures are already known when the item is shown.
+     * If the profile is not cached yet, the owner is set without textures.
+     * A missing or stale profile is requested for later builds
+     *
+     * @param owner the owner of the skull. If {@code null} then the owner will be removed
+     * @param cache the cache of skull profiles
+     * @return this ItemBuilder
+     * @see SkullProfileCache#prefetch(java.util.Collection)
+     */
+    public ItemBuilder setOwningPlayer(final @Nullable OfflinePlayer owner, final @NotNull @NonNull SkullProfileCache cache) {
+        if (owner == null || !(this.itemMeta instanceof SkullMeta)) return this.setOwningPlayer(owner);
+        final SkullProfile profile = cache.getIfPresent(owner.getUniqueId()).orElse(null);
+        // resolves the profile again if it is missing or stale, a fresh one is served from the cache
+        cache.get(owner.getUniqueId());
+        if (profile != null && profile.applyTo((SkullMeta) this.itemMeta)) return this;
+        return this.setOwningPlayer(owner);
+    }
+
+    /**
+     * Sets the owner of the skull together with their textures.
+     * Works only for the skull items, otherwise does nothing
+     *
+     * @param profile the resolved profile of the owner
+     * @return this ItemBuilder
+     */
+    public ItemBuilder setSkullProfile(final @NotNull @NonNull SkullProfile profile) {
+        if (this.itemMeta instanceof SkullMeta && !profile.applyTo((SkullMeta) this.itemMeta))
+            ((SkullMeta) this.itemMeta).setOwningPlayer(Bukkit.getOfflinePlayer(profile.getId()));
+        return this;
+    }
+
     /**
      * @return the ItemStack that has been created.
      */
@@ -186,6 +278,16 @@ public class ItemBuilder implements Builder<ItemStack> {
         return this.itemStack;
     }
 
+    /**
+     * Freezes the ItemStack that has been created into an immutable template.
+     * Structurally equal templates share a single instance.
+     *
+     * @return the canonical template of the ItemStack that has been created.
+     */
+    public @NotNull ItemTemplate buildTemplate() {
+        return ItemTemplate.of(this.build());
+    }
+
     /**
      * Sets the resulting itemMeta into the itemStack
      */
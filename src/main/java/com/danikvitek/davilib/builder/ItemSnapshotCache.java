@@ -0,0 +1,374 @@
+package com.danikvitek.davilib.builder;
+
+import lombok.NonNull;
+import org.bukkit.Bukkit;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.util.io.BukkitObjectInputStream;
+import org.bukkit.util.io.BukkitObjectOutputStream;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Persistent cache of compiled items and other values, keyed by the content they are built from.
+ * <p>
+ * Every value is stored under a key together with the hash of the content it was built from,
+ * e.g. the text of a config section. A value is served from the cache only while the hash matches,
+ * so changed content is rebuilt automatically and replaces the stale value on the next {@link #save()}.
+ * <p>
+ * {@link #load()} memory-maps the snapshot file and reads only its index.
+ * A value is deserialized on its first request, so values that are never requested are never deserialized.
+ * Reading an item back still runs the full {@code ItemMeta} deserialization of the server;
+ * what the cache saves is the building of the value from its content, e.g. parsing and text compilation.
+ * On Windows, where a mapped file can not be replaced until the mapping is garbage collected,
+ * the file is read into the heap instead.
+ * Values are written with {@link BukkitObjectOutputStream}: items, their arrays and plain Java values are supported.
+ * The snapshot is ignored as a whole when it was written by another server version
+ */
+public class ItemSnapshotCache {
+    private static final int MAGIC = 0x44565353;
+    private static final int FORMAT_VERSION = 1;
+    private static final boolean MAPPABLE = !System.getProperty("os.name", "").startsWith("Windows");
+
+    private final File file;
+    private final String version;
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+    /**
+     * Count of the changes of the entries, and the count written by the last successful {@link #save()}
+     */
+    private final AtomicLong changes = new AtomicLong();
+    private long savedChanges;
+
+    /**
+     * @param file    the snapshot file
+     * @param version the version of the server. Snapshots of other versions are ignored
+     */
+    public ItemSnapshotCache(final @NotNull @NonNull File file, final @NotNull @NonNull String version) {
+        this.file = file;
+        this.version = version;
+    }
+
+    /**
+     * Creates a cache persisted to {@code items.snapshot} in the data folder of the plugin
+     *
+     * @param plugin the plugin to store the snapshot file of
+     */
+    public ItemSnapshotCache(final @NotNull @NonNull Plugin plugin) {
+        this(new File(plugin.getDataFolder(), "items.snapshot"), Bukkit.getBukkitVersion());
+    }
+
+    /**
+     * @param content the content the value is built from
+     * @return the hash of the content
+     */
+    public static long hash(final byte @NotNull @NonNull [] content) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            return ByteBuffer.wrap(digest).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+
+    /**
+     * @param content the content the value is built from
+     * @return the hash of the content
+     */
+    public static long hash(final @NotNull @NonNull String content) {
+        return hash(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param key         the key of the value
+     * @param contentHash the hash of the content the value is built from
+     * @return {@code true} if the cache holds the value of the content, built now or read from the snapshot
+     */
+    public boolean contains(final @NotNull @NonNull String key, final long contentHash) {
+        final Entry entry = this.entries.get(key);
+        return entry != null && entry.hash == contentHash;
+    }
+
+    /**
+     * @param key         the key of the value
+     * @param contentHash the hash of the content the value is built from
+     * @param type        the type of the value
+     * @param builder     builds the value if it is missing, stale or unreadable
+     * @param <T>         the type of the value
+     * @return the cached or the built value. It is shared by all the callers of the key, thus must not be modified
+     */
+    public <T> @NotNull T get(final @NotNull @NonNull String key,
+                              final long contentHash,
+                              final @NotNull @NonNull Class<T> type,
+                              final @NotNull @NonNull Supplier<? extends T> builder) {
+        final Entry entry = this.entries.get(key);
+        if (entry != null && entry.hash == contentHash) {
+            final Object value = entry.value();
+            if (type.isInstance(value)) return type.cast(value);
+        }
+        final T built = Objects.requireNonNull(builder.get(), "Built value must not be null");
+        this.entries.put(key, new Entry(contentHash, built));
+        this.changes.incrementAndGet();
+        return built;
+    }
+
+    /**
+     * @param key     the key of the item
+     * @param content the content the item is built from, e.g. the text of its config section
+     * @param builder builds the item if it is missing, stale or unreadable
+     * @return the cached or the built item. It is shared by all the callers of the key, thus must be cloned before modification
+     */
+    public @NotNull ItemStack getItem(final @NotNull @NonNull String key,
+                                      final @NotNull @NonNull String content,
+                                      final @NotNull @NonNull Supplier<? extends ItemStack> builder) {
+        return this.get(key, hash(content), ItemStack.class, builder);
+    }
+
+    /**
+     * Drops the value, so it is not written to the snapshot anymore
+     *
+     * @param key the key of the value
+     */
+    public void remove(final @NotNull @NonNull String key) {
+        if (this.entries.remove(key) != null) this.changes.incrementAndGet();
+    }
+
+    /**
+     * Drops the values which keys match the filter, so they are not written to the snapshot anymore
+     *
+     * @param filter the filter of the keys to drop
+     */
+    public void removeIf(final @NotNull @NonNull Predicate<? super String> filter) {
+        if (this.entries.keySet().removeIf(filter)) this.changes.incrementAndGet();
+    }
+
+    /**
+     * @return the amount of cached values
+     */
+    public int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * Memory-maps, or reads on Windows, the snapshot file and reads its index, keeping the values that are already cached.
+     * Does nothing if it is already loaded or there is no file
+     *
+     * @throws IOException if reading fails
+     */
+    public synchronized void load() throws IOException {
+        if (this.loaded) return;
+        this.loaded = true;
+        if (this.file.isFile()) this.map(false);
+    }
+
+    /**
+     * Writes all the cached values to the snapshot file, if any of them changed since it was loaded.
+     * Values that were not requested are copied from the previous snapshot as is.
+     * If writing fails, the changes stay unsaved and are written by the next call
+     *
+     * @throws IOException if writing fails
+     */
+    public synchronized void save() throws IOException {
+        final long changes = this.changes.get();
+        if (changes == this.savedChanges) return;
+        final List<String> keys = new ArrayList<>();
+        final List<Entry> written = new ArrayList<>();
+        final List<byte[]> blobs = new ArrayList<>();
+        for (final Map.Entry<String, Entry> entry : this.entries.entrySet()) {
+            final byte[] blob = entry.getValue().encode();
+            if (blob == null) continue;
+            keys.add(entry.getKey());
+            written.add(entry.getValue());
+            blobs.add(blob);
+        }
+
+        final File parent = this.file.getAbsoluteFile().getParentFile();
+        if (parent != null) Files.createDirectories(parent.toPath());
+        final File temporary = new File(parent, this.file.getName() + ".tmp");
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary.toPath())))) {
+            output.writeInt(MAGIC);
+            output.writeInt(FORMAT_VERSION);
+            output.writeUTF(this.version);
+            output.writeInt(keys.size());
+            int offset = 0;
+            for (int i = 0; i < keys.size(); i++) {
+                output.writeUTF(keys.get(i));
+                output.writeLong(written.get(i).hash);
+                output.writeInt(offset);
+                output.writeInt(blobs.get(i).length);
+                offset += blobs.get(i).length;
+            }
+            for (final byte[] blob : blobs) output.write(blob);
+        }
+        Files.move(temporary.toPath(), this.file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        this.savedChanges = changes;
+        this.loaded = true;
+        this.map(true);
+    }
+
+    /**
+     * @param replace whether to point the cached entries of the same content to the new mapping
+     */
+    private void map(final boolean replace) throws IOException {
+        final ByteBuffer mapping;
+        try (FileChannel channel = FileChannel.open(this.file.toPath(), StandardOpenOption.READ)) {
+            if (MAPPABLE) mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            else {
+                // a mapping would keep the file from being replaced by the next save
+                if (channel.size() > Integer.MAX_VALUE) throw new IOException("Snapshot file is too large");
+                mapping = ByteBuffer.allocate((int) channel.size());
+                while (mapping.hasRemaining()) if (channel.read(mapping) < 0) break;
+                mapping.flip();
+            }
+        }
+        final ByteBuffer index = mapping.duplicate();
+        final DataInputStream input = new DataInputStream(new ByteBufferInputStream(index));
+        try {
+            if (input.readInt() != MAGIC || input.readInt() != FORMAT_VERSION || !this.version.equals(input.readUTF())) return;
+            final int count = input.readInt();
+            final String[] keys = new String[count];
+            final long[] hashes = new long[count];
+            final int[] offsets = new int[count];
+            final int[] lengths = new int[count];
+            for (int i = 0; i < count; i++) {
+                keys[i] = input.readUTF();
+                hashes[i] = input.readLong();
+                offsets[i] = input.readInt();
+                lengths[i] = input.readInt();
+            }
+            final int dataStart = index.position();
+            for (int i = 0; i < count; i++) {
+                if (offsets[i] < 0 || lengths[i] < 0 || (long) dataStart + offsets[i] + lengths[i] > mapping.limit()) continue;
+                if (replace) {
+                    final Entry existing = this.entries.get(keys[i]);
+                    if (existing != null && existing.hash == hashes[i])
+                        this.entries.replace(keys[i], existing,
+                                new Entry(hashes[i], mapping, dataStart + offsets[i], lengths[i], existing.value));
+                } else
+                    this.entries.putIfAbsent(keys[i], new Entry(hashes[i], mapping, dataStart + offsets[i], lengths[i], null));
+            }
+        } catch (IOException | RuntimeException e) {
+            // a corrupted snapshot is rebuilt from scratch
+        }
+    }
+
+    /**
+     * Cached value, either built in memory or lying serialized in the mapped snapshot
+     */
+    private static final class Entry {
+        private final long hash;
+        private final @Nullable ByteBuffer source;
+        private final int offset;
+        private final int length;
+        private volatile @Nullable Object value;
+
+        private Entry(final long hash, final @NotNull Object value) {
+            this(hash, null, 0, 0, value);
+        }
+
+        private Entry(final long hash,
+                      final @Nullable ByteBuffer source,
+                      final int offset,
+                      final int length,
+                      final @Nullable Object value) {
+            this.hash = hash;
+            this.source = source;
+            this.offset = offset;
+            this.length = length;
+            this.value = value;
+        }
+
+        /**
+         * @return the value, deserialized on the first call. {@code null} if it is unreadable
+         */
+        private @Nullable Object value() {
+            final Object value = this.value;
+            if (value != null || this.source == null) return value;
+            synchronized (this) {
+                if (this.value == null) try (BukkitObjectInputStream input = new BukkitObjectInputStream(
+                        new ByteBufferInputStream(this.slice()))) {
+                    this.value = input.readObject();
+                } catch (IOException | ClassNotFoundException | RuntimeException e) {
+                    return null;
+                }
+                return this.value;
+            }
+        }
+
+        /**
+         * @return the serialized value, or {@code null} if it is not serializable
+         */
+        private byte @Nullable [] encode() {
+            if (this.source != null) {
+                final byte[] blob = new byte[this.length];
+                this.slice().get(blob);
+                return blob;
+            }
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (BukkitObjectOutputStream output = new BukkitObjectOutputStream(bytes)) {
+                output.writeObject(this.value);
+            } catch (IOException | RuntimeException e) {
+                return null;
+            }
+            return bytes.toByteArray();
+        }
+
+        private @NotNull ByteBuffer slice() {
+            final ByteBuffer slice = Objects.requireNonNull(this.source).duplicate();
+            slice.limit(this.offset + this.length).position(this.offset);
+            return slice;
+        }
+    }
+
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(final @NotNull ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return this.buffer.hasRemaining() ? this.buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(final byte @NotNull [] bytes, final int offset, final int length) {
+            if (length == 0) return 0;
+            if (!this.buffer.hasRemaining()) return -1;
+            final int read = Math.min(length, this.buffer.remaining());
+            this.buffer.get(bytes, offset, read);
+            return read;
+        }
+
+        @Override
+        public int available() {
+            return this.buffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.danikvitek.davilib.builder;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import lombok.NonNull;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Immutable template of an {@link ItemStack}.
+ * <p>
+ * The template never exposes its item, it only hands out copies of it.
+ * Structurally equal templates are interned, so building the same item in many places
+ * keeps a single canonical instance in memory.
+ *
+ * @see ItemBuilder#buildTemplate()
+ */
+public final class ItemTemplate {
+    private static final Interner<ItemTemplate> INTERNER = Interners.newWeakInterner();
+
+    private final ItemStack prototype;
+    private final int hash;
+
+    private ItemTemplate(final @NotNull ItemStack prototype) {
+        this.prototype = prototype;
+        this.hash = prototype.hashCode();
+    }
+
+    /**
+     * Fabric method
+     *
+     * @param itemStack the item to make a template of. It is copied, so later changes of it do not affect the template
+     * @return the canonical template structurally equal to the item
+     */
+    public static @NotNull ItemTemplate of(final @NotNull @NonNull ItemStack itemStack) {
+        return INTERNER.intern(new ItemTemplate(itemStack.clone()));
+    }
+
+    /**
+     * @return new copy of the item
+     */
+    @Contract("-> new")
+    public @NotNull ItemStack newItem() {
+        return this.prototype.clone();
+    }
+
+    /**
+     * @param amount the amount of items in the copy
+     * @return new copy of the item with the given amount
+     */
+    @Contract("_ -> new")
+    public @NotNull ItemStack newItem(final int amount) {
+        final ItemStack itemStack = this.prototype.clone();
+        itemStack.setAmount(amount);
+        return itemStack;
+    }
+
+    /**
+     * @return new ItemBuilder based on the copy of the item
+     */
+    @Contract("-> new")
+    public @NotNull ItemBuilder toBuilder() {
+        return new ItemBuilder(this);
+    }
+
+    /**
+     * @return the item itself. It must never be modified or leaked outside the package
+     */
+    @NotNull ItemStack prototype() {
+        return this.prototype;
+    }
+
+    /**
+     * @return the material of the item
+     */
+    public @NotNull Material getType() {
+        return this.prototype.getType();
+    }
+
+    /**
+     * @return the amount of items
+     */
+    public int getAmount() {
+        return this.prototype.getAmount();
+    }
+
+    /**
+     * @param itemStack the item to compare with
+     * @return {@code true} if the item is equal to the template, ignoring the amount
+     */
+    public boolean isSimilar(final @Nullable ItemStack itemStack) {
+        return this.prototype.isSimilar(itemStack);
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ItemTemplate)) return false;
+        final ItemTemplate that = (ItemTemplate) o;
+        return this.hash == that.hash && this.prototype.equals(that.prototype);
+    }
+
+    @Override
+    public int hashCode() {
+        return this.hash;
+    }
+
+    @Override
+    public String toString() {
+        return "ItemTemplate(" + this.prototype + ")";
+    }
+}
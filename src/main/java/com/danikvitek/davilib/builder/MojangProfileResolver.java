@@ -0,0 +1,52 @@
+package com.danikvitek.davilib.builder;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Resolver that looks profiles up in the Mojang session server
+ */
+public class MojangProfileResolver implements ProfileResolver {
+    private static final String PROFILE_URL = "https://sessionserver.mojang.com/session/minecraft/profile/%s?unsigned=false";
+    private static final int TIMEOUT_MILLIS = 5000;
+
+    @SuppressWarnings("deprecation")
+    @Override
+    public @Nullable SkullProfile resolve(final @NotNull UUID id) throws IOException {
+        final URL url = new URL(String.format(PROFILE_URL, id.toString().replace("-", "")));
+        final HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setConnectTimeout(TIMEOUT_MILLIS);
+        connection.setReadTimeout(TIMEOUT_MILLIS);
+        try {
+            final int status = connection.getResponseCode();
+            if (status == HttpURLConnection.HTTP_NO_CONTENT || status == HttpURLConnection.HTTP_NOT_FOUND) return null;
+            if (status != HttpURLConnection.HTTP_OK) throw new IOException("Session server responded with " + status);
+
+            try (Reader reader = new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8)) {
+                final JsonObject profile = new JsonParser().parse(reader).getAsJsonObject();
+                final String name = profile.has("name") ? profile.get("name").getAsString() : null;
+                if (!profile.has("properties")) return null;
+                for (final JsonElement element : profile.getAsJsonArray("properties")) {
+                    final JsonObject property = element.getAsJsonObject();
+                    if (!"textures".equals(property.get("name").getAsString())) continue;
+                    final String signature = property.has("signature") ? property.get("signature").getAsString() : null;
+                    return new SkullProfile(id, name, property.get("value").getAsString(), signature, System.currentTimeMillis());
+                }
+                return null;
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.danikvitek.davilib.builder;
+
+import lombok.NonNull;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+
+/**
+ * Item with the display name and lore rendered from {@link CompiledText}s for every context, typically a viewer.
+ * <p>
+ * Values of all the placeholders are resolved once per render. The last render of every context is cached:
+ * if no value has changed the same item is returned, otherwise only the lines with changed values are rendered again.
+ * Contexts are held weakly
+ *
+ * @param <C> type of the context
+ * @see ItemBuilder#buildPersonalized(PlaceholderResolver)
+ */
+public final class PersonalizedItem<C> {
+    private final ItemStack base;
+    private final PlaceholderResolver<? super C> resolver;
+    private final @Nullable CompiledText name;
+    private final CompiledText @Nullable [] lore;
+    /**
+     * Distinct keys of all the placeholders
+     */
+    private final String[] keys;
+    private final int @Nullable [] nameIndices;
+    private final int @Nullable [][] loreIndices;
+    private final Map<C, Rendered> cache = Collections.synchronizedMap(new WeakHashMap<>());
+
+    PersonalizedItem(final @NotNull ItemStack base,
+                     final @NotNull PlaceholderResolver<? super C> resolver,
+                     final @Nullable CompiledText name,
+                     final @Nullable List<CompiledText> lore) {
+        this.base = base;
+        this.resolver = resolver;
+        this.name = name;
+        this.lore = lore != null ? lore.toArray(new CompiledText[0]) : null;
+
+        final List<String> keys = new ArrayList<>();
+        this.nameIndices = name != null ? indicesOf(name, keys) : null;
+        if (this.lore != null) {
+            this.loreIndices = new int[this.lore.length][];
+            for (int line = 0; line < this.lore.length; line++) this.loreIndices[line] = indicesOf(this.lore[line], keys);
+        } else this.loreIndices = null;
+        this.keys = keys.toArray(new String[0]);
+    }
+
+    private static int @NotNull [] indicesOf(final @NotNull CompiledText text, final @NotNull List<String> keys) {
+        final List<String> textKeys = text.getKeys();
+        final int[] indices = new int[textKeys.size()];
+        for (int i = 0; i < indices.length; i++) {
+            final int index = keys.indexOf(textKeys.get(i));
+            if (index >= 0) indices[i] = index;
+            else {
+                indices[i] = keys.size();
+                keys.add(textKeys.get(i));
+            }
+        }
+        return indices;
+    }
+
+    /**
+     * @param context the context to render for
+     * @return the item for the context. It is shared with the later renders, so it must not be modified
+     */
+    public @NotNull ItemStack render(final @NotNull @NonNull C context) {
+        final Object[] values = new Object[this.keys.length];
+        for (int i = 0; i < values.length; i++) values[i] = this.resolver.resolve(context, this.keys[i]);
+
+        final Rendered previous = this.cache.get(context);
+        if (previous != null && Arrays.equals(previous.values, values)) return previous.item;
+
+        String name = null;
+        if (this.name != null)
+            name = previous != null && unchanged(previous.values, values, this.nameIndices)
+                    ? previous.name
+                    : this.name.render(values, this.nameIndices);
+        String[] lore = null;
+        if (this.lore != null) {
+            lore = new String[this.lore.length];
+            for (int line = 0; line < lore.length; line++)
+                lore[line] = previous != null && unchanged(previous.values, values, this.loreIndices[line])
+                        ? previous.lore[line]
+                        : this.lore[line].render(values, this.loreIndices[line]);
+        }
+
+        final ItemStack item = this.base.clone();
+        final ItemMeta meta = item.getItemMeta();
+        if (meta != null) {
+            if (name != null) meta.setDisplayName(name);
+            if (lore != null) meta.setLore(Arrays.asList(lore));
+            item.setItemMeta(meta);
+        }
+        this.cache.put(context, new Rendered(values, name, lore, item));
+        return item;
+    }
+
+    private static boolean unchanged(final @NotNull Object[] previous,
+                                     final @NotNull Object[] current,
+                                     final int @NotNull [] indices) {
+        for (final int index : indices)
+            if (!Objects.equals(previous[index], current[index])) return false;
+        return true;
+    }
+
+    /**
+     * Forgets the cached render of the context
+     *
+     * @param context the context to forget
+     */
+    public void invalidate(final @NotNull @NonNull C context) {
+        this.cache.remove(context);
+    }
+
+    /**
+     * Forgets the cached renders of all the contexts
+     */
+    public void invalidateAll() {
+        this.cache.clear();
+    }
+
+    /**
+     * The last render for a context
+     */
+    private static final class Rendered {
+        private final Object[] values;
+        private final @Nullable String name;
+        private final String @Nullable [] lore;
+        private final ItemStack item;
+
+        private Rendered(final @NotNull Object[] values,
+                         final @Nullable String name,
+                         final String @Nullable [] lore,
+                         final @NotNull ItemStack item) {
+            this.values = values;
+            this.name = name;
+            this.lore = lore;
+            this.item = item;
+        }
+    }
+}
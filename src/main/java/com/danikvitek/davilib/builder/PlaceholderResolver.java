@@ -0,0 +1,19 @@
+package com.danikvitek.davilib.builder;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Gives values of the placeholders of {@link CompiledText}s for a rendering context, typically a viewer
+ *
+ * @param <C> type of the context
+ */
+@FunctionalInterface
+public interface PlaceholderResolver<C> {
+    /**
+     * @param context the context to render for
+     * @param key     the key of the placeholder
+     * @return the value of the placeholder, or {@code null} to keep the placeholder as it is
+     */
+    @Nullable Object resolve(@NotNull C context, @NotNull String key);
+}
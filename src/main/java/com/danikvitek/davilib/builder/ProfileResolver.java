@@ -0,0 +1,22 @@
+package com.danikvitek.davilib.builder;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.UUID;
+
+/**
+ * Source of skull profiles for a {@link SkullProfileCache}. It is always called off the main thread, so it may block
+ *
+ * @see MojangProfileResolver
+ */
+@FunctionalInterface
+public interface ProfileResolver {
+    /**
+     * @param id the id of the player
+     * @return the profile with textures, or {@code null} if there is no such player
+     * @throws IOException if the lookup fails
+     */
+    @Nullable SkullProfile resolve(@NotNull UUID id) throws IOException;
+}
@@ -0,0 +1,109 @@
+package com.danikvitek.davilib.builder;
+
+import lombok.Getter;
+import lombok.NonNull;
+import org.bukkit.inventory.meta.SkullMeta;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.UUID;
+
+/**
+ * Immutable resolved profile of a player head: the owner and their signed textures property
+ *
+ * @see SkullProfileCache
+ * @see ItemBuilder#setSkullProfile(SkullProfile)
+ */
+@Getter
+public final class SkullProfile {
+    private final @NotNull UUID id;
+    private final @Nullable String name;
+    /**
+     * Base64 value of the {@code textures} property
+     */
+    private final @NotNull String textures;
+    private final @Nullable String signature;
+    /**
+     * Time of the resolution, in milliseconds since the epoch
+     */
+    private final long resolvedAt;
+
+    /**
+     * @param id         the id of the owner
+     * @param name       the name of the owner, if known
+     * @param textures   base64 value of the {@code textures} property
+     * @param signature  signature of the {@code textures} property, if any
+     * @param resolvedAt time of the resolution, in milliseconds since the epoch
+     */
+    public SkullProfile(final @NotNull @NonNull UUID id,
+                        final @Nullable String name,
+                        final @NotNull @NonNull String textures,
+                        final @Nullable String signature,
+                        final long resolvedAt) {
+        this.id = id;
+        this.name = name;
+        this.textures = textures;
+        this.signature = signature;
+        this.resolvedAt = resolvedAt;
+    }
+
+    /**
+     * Sets the profile with textures into the skull meta, so the client does not have to look it up
+     *
+     * @param meta the meta to set profile into
+     * @return {@code false} if the server does not support setting profiles
+     */
+    boolean applyTo(final @NotNull SkullMeta meta) {
+        final Reflection reflection = Reflection.INSTANCE;
+        if (reflection == null) return false;
+        try {
+            final Object profile = reflection.gameProfile.newInstance(this.id, this.name);
+            final Object property = reflection.property.newInstance("textures", this.textures, this.signature);
+            reflection.put.invoke(reflection.getProperties.invoke(profile), "textures", property);
+            try {
+                final Method setProfile = meta.getClass().getDeclaredMethod("setProfile", reflection.gameProfile.getDeclaringClass());
+                setProfile.setAccessible(true);
+                setProfile.invoke(meta, profile);
+            } catch (NoSuchMethodException e) {
+                final Field field = meta.getClass().getDeclaredField("profile");
+                field.setAccessible(true);
+                field.set(meta, profile);
+            }
+            return true;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Reflective access to the authlib classes bundled with the server
+     */
+    private static final class Reflection {
+        private static final @Nullable Reflection INSTANCE = create();
+
+        private final Constructor<?> gameProfile;
+        private final Constructor<?> property;
+        private final Method getProperties;
+        private final Method put;
+
+        private Reflection() throws ReflectiveOperationException {
+            final Class<?> gameProfileClass = Class.forName("com.mojang.authlib.GameProfile");
+            this.gameProfile = gameProfileClass.getConstructor(UUID.class, String.class);
+            this.property = Class.forName("com.mojang.authlib.properties.Property")
+                    .getConstructor(String.class, String.class, String.class);
+            this.getProperties = gameProfileClass.getMethod("getProperties");
+            this.put = this.getProperties.getReturnType().getMethod("put", Object.class, Object.class);
+        }
+
+        private static @Nullable Reflection create() {
+            try {
+                return new Reflection();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                return null;
+            }
+        }
+    }
+}
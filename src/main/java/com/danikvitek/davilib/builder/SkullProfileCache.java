@@ -0,0 +1,332 @@
+package com.danikvitek.davilib.builder;
+
+import lombok.NonNull;
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded LRU cache of {@link SkullProfile}s, filled asynchronously by a {@link ProfileResolver}.
+ * <p>
+ * Prefetch the heads of a menu before building it, then set them with
+ * {@link ItemBuilder#setOwningPlayer(org.bukkit.OfflinePlayer, SkullProfileCache)}, so rendering never waits for a lookup.
+ * Concurrent requests of the same profile share one lookup. Lookups run in parallel, bounded in concurrency
+ * and rate, so a prefetch of many heads does not hit the rate limits of the resolver.
+ * Profiles older than the time to live are still served, but are resolved again on the next request.
+ * The cache may be persisted to a file to survive restarts
+ */
+public class SkullProfileCache {
+    private final ProfileResolver resolver;
+    private final Executor executor;
+    private final Duration timeToLive;
+    private final @Nullable File file;
+    private final LinkedHashMap<UUID, SkullProfile> profiles;
+    private final ConcurrentMap<UUID, CompletableFuture<SkullProfile>> inFlight = new ConcurrentHashMap<>();
+    private final Queue<Lookup> queue = new ConcurrentLinkedQueue<>();
+    /**
+     * Amount of tasks running the queued lookups
+     */
+    private final AtomicInteger workers = new AtomicInteger();
+    /**
+     * {@link System#nanoTime()} before which the next lookup must not start
+     */
+    private final AtomicLong nextLookup = new AtomicLong(System.nanoTime());
+    private volatile int maxConcurrentLookups = 4;
+    private volatile long lookupIntervalNanos = TimeUnit.SECONDS.toNanos(1) / 3;
+
+    /**
+     * @param resolver   the source of the profiles
+     * @param executor   the executor to resolve profiles on
+     * @param maxSize    the maximal amount of cached profiles
+     * @param timeToLive the age after which a profile is resolved again
+     * @param file       the file to persist the cache to. If {@code null} then the cache is kept only in memory
+     */
+    public SkullProfileCache(final @NotNull @NonNull ProfileResolver resolver,
+                             final @NotNull @NonNull Executor executor,
+                             final int maxSize,
+                             final @NotNull @NonNull Duration timeToLive,
+                             final @Nullable File file) {
+        if (maxSize < 1) throw new IllegalArgumentException("Max size must be positive");
+        this.resolver = resolver;
+        this.executor = executor;
+        this.timeToLive = timeToLive;
+        this.file = file;
+        this.profiles = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<UUID, SkullProfile> eldest) {
+                return this.size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Creates a cache of 2048 profiles, that resolves them from the Mojang session server on the Bukkit async scheduler,
+     * keeps them for 3 days and persists them to {@code skulls.tsv} in the data folder of the plugin
+     *
+     * @param plugin the plugin to schedule lookups with and store the cache file of
+     */
+    public SkullProfileCache(final @NotNull @NonNull Plugin plugin) {
+        this(new MojangProfileResolver(),
+                task -> Bukkit.getScheduler().runTaskAsynchronously(plugin, task),
+                2048,
+                Duration.ofDays(3),
+                new File(plugin.getDataFolder(), "skulls.tsv"));
+    }
+
+    /**
+     * Bounds the lookups of the resolver. Defaults are 4 concurrent lookups and 3 lookups per second,
+     * that fit the rate limit of the Mojang session server
+     *
+     * @param maxConcurrentLookups the maximal amount of lookups running at once
+     * @param lookupsPerSecond     the maximal amount of lookups started per second. If {@code 0} then the rate is not limited
+     */
+    public void setLookupLimits(final int maxConcurrentLookups, final int lookupsPerSecond) {
+        if (maxConcurrentLookups < 1) throw new IllegalArgumentException("Max concurrent lookups must be positive");
+        if (lookupsPerSecond < 0) throw new IllegalArgumentException("Lookups per second must not be negative");
+        this.maxConcurrentLookups = maxConcurrentLookups;
+        this.lookupIntervalNanos = lookupsPerSecond == 0 ? 0 : TimeUnit.SECONDS.toNanos(1) / lookupsPerSecond;
+        this.drain();
+    }
+
+    /**
+     * @param id the id of the player
+     * @return Maybe the cached profile. Never triggers a lookup
+     */
+    public Optional<SkullProfile> getIfPresent(final @NotNull @NonNull UUID id) {
+        synchronized (this.profiles) {
+            return Optional.ofNullable(this.profiles.get(id));
+        }
+    }
+
+    /**
+     * @param id the id of the player
+     * @return the future of the profile. It is already completed if the profile is cached and fresh.
+     * Completes with {@code null} if there is no such player
+     */
+    public @NotNull CompletableFuture<@Nullable SkullProfile> get(final @NotNull @NonNull UUID id) {
+        final SkullProfile cached = this.getFresh(id);
+        if (cached != null) return CompletableFuture.completedFuture(cached);
+        final CompletableFuture<SkullProfile> created = new CompletableFuture<>();
+        final CompletableFuture<SkullProfile> existing = this.inFlight.putIfAbsent(id, created);
+        if (existing != null) return existing;
+        this.queue.add(new Lookup(id, created));
+        this.drain();
+        return created;
+    }
+
+    /**
+     * Resolves the missing and stale profiles of the players in parallel, within the lookup limits
+     *
+     * @see #setLookupLimits(int, int)
+     * @param ids the ids of the players
+     * @return the future of the found profiles. Players that do not exist or failed to resolve are absent
+     */
+    public @NotNull CompletableFuture<Map<UUID, SkullProfile>> prefetch(final @NotNull @NonNull Collection<UUID> ids) {
+        final Map<UUID, CompletableFuture<SkullProfile>> futures = new HashMap<>();
+        for (final UUID id : new LinkedHashSet<>(ids)) {
+            final SkullProfile cached = this.getFresh(id);
+            if (cached != null) {
+                futures.put(id, CompletableFuture.completedFuture(cached));
+                continue;
+            }
+            final CompletableFuture<SkullProfile> created = new CompletableFuture<>();
+            final CompletableFuture<SkullProfile> existing = this.inFlight.putIfAbsent(id, created);
+            futures.put(id, existing != null ? existing : created);
+            if (existing == null) this.queue.add(new Lookup(id, created));
+        }
+        this.drain();
+
+        return CompletableFuture.allOf(futures.values().stream()
+                        .map(future -> future.exceptionally(error -> null))
+                        .toArray(CompletableFuture[]::new))
+                .thenApply(done -> {
+                    final Map<UUID, SkullProfile> result = new HashMap<>();
+                    futures.forEach((id, future) -> {
+                        final SkullProfile profile = future.getNow(null);
+                        if (profile != null) result.put(id, profile);
+                    });
+                    return result;
+                });
+    }
+
+    private @Nullable SkullProfile getFresh(final @NotNull UUID id) {
+        final SkullProfile cached;
+        synchronized (this.profiles) {
+            cached = this.profiles.get(id);
+        }
+        if (cached == null || System.currentTimeMillis() - cached.getResolvedAt() > this.timeToLive.toMillis()) return null;
+        return cached;
+    }
+
+    /**
+     * Starts tasks for the queued lookups, up to the concurrency limit
+     */
+    private void drain() {
+        while (!this.queue.isEmpty()) {
+            final int running = this.workers.get();
+            if (running >= this.maxConcurrentLookups) return;
+            if (!this.workers.compareAndSet(running, running + 1)) continue;
+            try {
+                this.executor.execute(this::work);
+            } catch (RuntimeException e) {
+                // the queued lookups are left to the running tasks, if there are any
+                if (this.workers.decrementAndGet() == 0)
+                    for (Lookup lookup; (lookup = this.queue.poll()) != null; ) {
+                        this.inFlight.remove(lookup.id, lookup.future);
+                        lookup.future.completeExceptionally(e);
+                    }
+                return;
+            }
+        }
+    }
+
+    private void work() {
+        try {
+            for (Lookup lookup; (lookup = this.queue.poll()) != null; ) {
+                this.awaitRate();
+                this.resolve(lookup.id, lookup.future);
+            }
+        } finally {
+            this.workers.decrementAndGet();
+        }
+        // a lookup may have been queued after the last poll
+        this.drain();
+    }
+
+    /**
+     * Waits for the slot of the next lookup within the rate limit
+     */
+    private void awaitRate() {
+        final long interval = this.lookupIntervalNanos;
+        if (interval == 0) return;
+        final long slot = this.nextLookup.accumulateAndGet(System.nanoTime(), (next, now) -> Math.max(next, now) + interval) - interval;
+        for (long wait; (wait = slot - System.nanoTime()) > 0; ) LockSupport.parkNanos(wait);
+    }
+
+    private void resolve(final @NotNull UUID id, final @NotNull CompletableFuture<SkullProfile> future) {
+        try {
+            final SkullProfile profile = this.resolver.resolve(id);
+            if (profile != null) this.put(profile);
+            future.complete(profile);
+        } catch (Exception e) {
+            future.completeExceptionally(new CompletionException(e));
+        } finally {
+            this.inFlight.remove(id, future);
+        }
+    }
+
+    /**
+     * Lookup of a profile waiting for a free task
+     */
+    private static final class Lookup {
+        private final UUID id;
+        private final CompletableFuture<SkullProfile> future;
+
+        private Lookup(final @NotNull UUID id, final @NotNull CompletableFuture<SkullProfile> future) {
+            this.id = id;
+            this.future = future;
+        }
+    }
+
+    /**
+     * @param profile the profile to cache
+     */
+    public void put(final @NotNull @NonNull SkullProfile profile) {
+        synchronized (this.profiles) {
+            this.profiles.put(profile.getId(), profile);
+        }
+    }
+
+    /**
+     * @return the amount of cached profiles
+     */
+    public int size() {
+        synchronized (this.profiles) {
+            return this.profiles.size();
+        }
+    }
+
+    /**
+     * Reads the cache file, keeping the profiles that are already cached. Does nothing if there is no file
+     *
+     * @throws IOException if reading fails
+     */
+    public void load() throws IOException {
+        if (this.file == null || !this.file.isFile()) return;
+        try (BufferedReader reader = Files.newBufferedReader(this.file.toPath(), StandardCharsets.UTF_8)) {
+            for (String line; (line = reader.readLine()) != null; ) {
+                final String[] fields = line.split("\t", -1);
+                if (fields.length != 5) continue;
+                try {
+                    final SkullProfile profile = new SkullProfile(UUID.fromString(fields[0]),
+                            fields[1].isEmpty() ? null : fields[1],
+                            fields[2],
+                            fields[3].isEmpty() ? null : fields[3],
+                            Long.parseLong(fields[4]));
+                    synchronized (this.profiles) {
+                        this.profiles.putIfAbsent(profile.getId(), profile);
+                    }
+                } catch (IllegalArgumentException ignored) {
+                    // a corrupted line is dropped
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the cached profiles to the cache file, least recently used first. Does nothing if there is no file
+     *
+     * @throws IOException if writing fails
+     */
+    public void save() throws IOException {
+        if (this.file == null) return;
+        final List<SkullProfile> snapshot;
+        synchronized (this.profiles) {
+            snapshot = new ArrayList<>(this.profiles.values());
+        }
+        final File parent = this.file.getAbsoluteFile().getParentFile();
+        if (parent != null) Files.createDirectories(parent.toPath());
+        final File temporary = new File(parent, this.file.getName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temporary.toPath(), StandardCharsets.UTF_8)) {
+            for (final SkullProfile profile : snapshot) {
+                writer.write(profile.getId() + "\t"
+                        + (profile.getName() != null ? profile.getName() : "") + "\t"
+                        + profile.getTextures() + "\t"
+                        + (profile.getSignature() != null ? profile.getSignature() : "") + "\t"
+                        + profile.getResolvedAt());
+                writer.newLine();
+            }
+        }
+        Files.move(temporary.toPath(), this.file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
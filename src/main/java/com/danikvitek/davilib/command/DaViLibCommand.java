@@ -0,0 +1,113 @@
+package com.danikvitek.davilib.command;
+
+import com.danikvitek.davilib.menu.LatencyHistogram;
+import com.danikvitek.davilib.menu.Menu;
+import com.danikvitek.davilib.menu.MenuHandler;
+import com.danikvitek.davilib.menu.MenuMetrics;
+import com.danikvitek.davilib.util.StringUtil;
+import lombok.NonNull;
+import org.bukkit.ChatColor;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.TabExecutor;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Executor of the {@code /davilib} diagnostic command
+ */
+public class DaViLibCommand implements TabExecutor {
+    private static final List<String> SUBCOMMANDS = List.of("metrics", "heap");
+    private static final int TOP_HANDLERS = 10;
+
+    private final MenuHandler menuHandler;
+
+    /**
+     * @param menuHandler the handler to report the menus of
+     */
+    public DaViLibCommand(final @NotNull @NonNull MenuHandler menuHandler) {
+        this.menuHandler = menuHandler;
+    }
+
+    @Override
+    public boolean onCommand(final @NotNull @NonNull CommandSender sender,
+                             final @NotNull @NonNull Command command,
+                             final @NotNull @NonNull String label,
+                             final @NotNull @NonNull String[] args) {
+        if (args.length == 0) return false;
+        switch (args[0].toLowerCase()) {
+            case "metrics":
+                if (args.length > 1 && args[1].equalsIgnoreCase("reset")) {
+                    MenuMetrics.global().reset();
+                    sender.sendMessage(ChatColor.GREEN + "Menu metrics have been reset");
+                } else dumpMetrics(sender);
+                return true;
+            case "heap":
+                this.dumpHeap(sender);
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    @Override
+    public List<String> onTabComplete(final @NotNull @NonNull CommandSender sender,
+                                      final @NotNull @NonNull Command command,
+                                      final @NotNull @NonNull String alias,
+                                      final @NotNull @NonNull String[] args) {
+        if (args.length == 1) return StringUtil.copyPartialInnerMatches(args[0].toLowerCase(), SUBCOMMANDS);
+        if (args.length == 2 && args[0].equalsIgnoreCase("metrics"))
+            return StringUtil.copyPartialInnerMatches(args[1].toLowerCase(), List.of("reset"));
+        return List.of();
+    }
+
+    private static void dumpMetrics(final @NotNull CommandSender sender) {
+        final MenuMetrics metrics = MenuMetrics.global();
+        if (!metrics.isEnabled()) sender.sendMessage(ChatColor.YELLOW + "Menu metrics are disabled");
+
+        sender.sendMessage(ChatColor.GOLD + "Menus:");
+        metrics.getMenuStats().entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(entry -> {
+                    final MenuMetrics.MenuStats stats = entry.getValue();
+                    sender.sendMessage(ChatColor.WHITE + entry.getKey());
+                    sender.sendMessage(ChatColor.GRAY + "  open " + format(stats.getOpens()));
+                    sender.sendMessage(ChatColor.GRAY + "  click " + format(stats.getClicks()));
+                    sender.sendMessage(ChatColor.GRAY + "  close " + format(stats.getCloses()));
+                });
+
+        sender.sendMessage(ChatColor.GOLD + "Slowest button handlers:");
+        metrics.getHandlerStats().entrySet().stream()
+                .sorted(Map.Entry.<String, LatencyHistogram>comparingByValue(
+                        Comparator.comparingLong(LatencyHistogram::getTotalNanos)).reversed())
+                .limit(TOP_HANDLERS)
+                .forEach(entry -> sender.sendMessage(
+                        ChatColor.WHITE + entry.getKey() + ChatColor.GRAY + " " + format(entry.getValue())));
+    }
+
+    private void dumpHeap(final @NotNull CommandSender sender) {
+        final Map<Class<? extends Menu>, MenuHandler.RetainedSize> sizes = this.menuHandler.getRetainedSizes();
+        sender.sendMessage(ChatColor.GOLD + "Estimated heap retained by menus:");
+        sizes.entrySet().stream()
+                .sorted(Map.Entry.<Class<? extends Menu>, MenuHandler.RetainedSize>comparingByValue(
+                        Comparator.comparingLong(MenuHandler.RetainedSize::getBytes)).reversed())
+                .forEach(entry -> sender.sendMessage(ChatColor.WHITE + entry.getKey().getName() + ChatColor.GRAY
+                        + String.format(" x%d, %.1f KiB", entry.getValue().getMenus(), entry.getValue().getBytes() / 1024.0)));
+        sender.sendMessage(ChatColor.GRAY + String.format("Total: %d menus, %.1f KiB. Orphaned menus evicted: %d",
+                sizes.values().stream().mapToInt(MenuHandler.RetainedSize::getMenus).sum(),
+                sizes.values().stream().mapToLong(MenuHandler.RetainedSize::getBytes).sum() / 1024.0,
+                this.menuHandler.getOrphanedCount()));
+    }
+
+    private static @NotNull String format(final @NotNull LatencyHistogram histogram) {
+        return String.format("x%d, total %.2f ms, avg %.3f ms, p99 %.3f ms, max %.3f ms",
+                histogram.getCount(),
+                histogram.getTotalNanos() / 1e6,
+                histogram.getMeanNanos() / 1e6,
+                histogram.getQuantileNanos(0.99) / 1e6,
+                histogram.getMaxNanos() / 1e6);
+    }
+}
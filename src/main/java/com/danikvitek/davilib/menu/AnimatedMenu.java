@@ -0,0 +1,26 @@
+package com.danikvitek.davilib.menu;
+
+/**
+ * Interface for menus that change their buttons over time.
+ * <p>
+ * While such a menu is opened through a {@link MenuHandler} created with a plugin, it is driven by the
+ * handler's {@link MenuAnimator}, and its changes are flushed right after {@link #animate(long)}
+ *
+ * @apiNote Implement it in a {@link Menu} subclass
+ */
+public interface AnimatedMenu {
+    /**
+     * @return the amount of ticks between two frames. At least 1
+     */
+    default int getAnimationPeriod() {
+        return 1;
+    }
+
+    /**
+     * Updates the buttons for the next frame. Called on the thread that owns a viewer of the menu,
+     * which is the main thread unless the server is region-threaded, holding the monitor of the menu
+     *
+     * @param tick the number of the current animator tick
+     */
+    void animate(final long tick);
+}
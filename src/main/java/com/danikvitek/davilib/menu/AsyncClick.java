@@ -0,0 +1,29 @@
+package com.danikvitek.davilib.menu;
+
+import lombok.Getter;
+import org.bukkit.event.inventory.ClickType;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.UUID;
+
+/**
+ * Immutable snapshot of a click, handed to an {@link AsyncClickHandler} off the main thread
+ * in place of the {@link org.bukkit.event.inventory.InventoryClickEvent}
+ */
+@Getter
+public final class AsyncClick {
+    /**
+     * The clicked menu. It must only be read off the main thread, change it through a {@link ClickResult}
+     */
+    private final @NotNull Menu menu;
+    private final @NotNull UUID playerId;
+    private final int slot;
+    private final @NotNull ClickType clickType;
+
+    AsyncClick(final @NotNull Menu menu, final @NotNull UUID playerId, final int slot, final @NotNull ClickType clickType) {
+        this.menu = menu;
+        this.playerId = playerId;
+        this.slot = slot;
+        this.clickType = clickType;
+    }
+}
@@ -0,0 +1,227 @@
+package com.danikvitek.davilib.menu;
+
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+/**
+ * Runs {@link AsyncClickHandler}s of a {@link MenuHandler} and marshals their results back to the main thread
+ */
+final class AsyncClickDispatcher {
+    private final Plugin plugin;
+    private final MenuScheduler scheduler;
+    private final MenuHandler menuHandler;
+    /**
+     * Async clicks in flight, one per player
+     */
+    private final ConcurrentMap<UUID, Task> inFlight = new ConcurrentHashMap<>();
+    private volatile Executor executor;
+    /**
+     * The default executor, if it was created by this dispatcher, thus has to be shut down by it
+     */
+    private @Nullable ExecutorService ownedExecutor;
+    private volatile Duration timeout = Duration.ofSeconds(5);
+
+    AsyncClickDispatcher(final @NotNull Plugin plugin,
+                         final @NotNull MenuScheduler scheduler,
+                         final @NotNull MenuHandler menuHandler) {
+        this.plugin = plugin;
+        this.scheduler = scheduler;
+        this.menuHandler = menuHandler;
+    }
+
+    void setExecutor(final @NotNull Executor executor) {
+        final ExecutorService owned;
+        synchronized (this) {
+            owned = this.ownedExecutor;
+            this.ownedExecutor = null;
+            this.executor = executor;
+        }
+        if (owned != null) owned.shutdown();
+    }
+
+    void setTimeout(final @NotNull Duration timeout) {
+        if (timeout.isNegative() || timeout.isZero()) throw new IllegalArgumentException("Timeout must be positive");
+        this.timeout = timeout;
+    }
+
+    boolean isInFlight(final @NotNull UUID playerId) {
+        return this.inFlight.containsKey(playerId);
+    }
+
+    /**
+     * Starts the handler unless the player already has an async click in flight.
+     * The click stays in flight until the handler returns, even if it has timed out
+     *
+     * @param player the player who clicked, captured on the thread of the click
+     * @return {@code false} if the click was dropped as a duplicate or rejected by the executor
+     */
+    boolean dispatch(final @NotNull Menu menu,
+                     final @NotNull AsyncClickHandler handler,
+                     final @NotNull AsyncClick click,
+                     final @NotNull Player player) {
+        final UUID playerId = click.getPlayerId();
+        final Task task = new Task(menu, handler, click);
+        if (this.inFlight.putIfAbsent(playerId, task) != null) return false;
+
+        final Duration timeout = handler.getTimeout() != null ? handler.getTimeout() : this.timeout;
+        try {
+            this.executor().execute(task);
+        } catch (RejectedExecutionException e) {
+            this.inFlight.remove(playerId, task);
+            return false;
+        }
+        task.result
+                .orTimeout(timeout.toNanos(), TimeUnit.NANOSECONDS)
+                .whenComplete((result, error) -> this.complete(menu, handler, player, task, result, error));
+        return true;
+    }
+
+    private void complete(final @NotNull Menu menu,
+                          final @NotNull AsyncClickHandler handler,
+                          final @NotNull Player player,
+                          final @NotNull Task task,
+                          final ClickResult result,
+                          final Throwable error) {
+        final UUID playerId = player.getUniqueId();
+        if (error != null) {
+            // the click stays in flight until the handler returns
+            if (error instanceof CancellationException) return;
+            if (error instanceof TimeoutException) {
+                task.interrupt();
+                this.plugin.getLogger().warning("Async click handler " + handler.getClass().getName() + " timed out");
+            } else
+                this.plugin.getLogger().log(Level.WARNING, "Async click handler " + handler.getClass().getName() + " failed", error);
+            return;
+        }
+        // called on the executor thread, so the player is checked to be online only on their own thread
+        try {
+            this.scheduler.execute(player, () -> {
+                this.inFlight.remove(playerId, task);
+                if (result != null && player.isOnline() && this.menuHandler.getMenu(playerId).orElse(null) == menu)
+                    result.apply(this.menuHandler, player, menu);
+            }, () -> this.inFlight.remove(playerId, task));
+        } catch (RuntimeException e) {
+            // the plugin has been disabled in the meantime
+            this.inFlight.remove(playerId, task);
+        }
+    }
+
+    /**
+     * Cancels the async clicks on the menus of the plugin, interrupting their handlers
+     *
+     * @param owner the plugin that is disabled
+     */
+    void cancel(final @NotNull Plugin owner) {
+        for (final Task task : this.inFlight.values())
+            if (task.menu.getOwner() == owner
+                    && task.result.completeExceptionally(new CancellationException("Plugin has been disabled")))
+                task.interrupt();
+    }
+
+    /**
+     * Shuts down the default executor, interrupting the running handlers. Executors set explicitly are left running
+     */
+    void shutdown() {
+        final ExecutorService owned;
+        synchronized (this) {
+            owned = this.ownedExecutor;
+            this.ownedExecutor = null;
+            if (owned != null) this.executor = null;
+        }
+        if (owned != null) owned.shutdownNow();
+        this.inFlight.clear();
+    }
+
+    private @NotNull Executor executor() {
+        Executor executor = this.executor;
+        if (executor == null) synchronized (this) {
+            executor = this.executor;
+            if (executor == null) this.executor = executor = this.ownedExecutor = defaultExecutor();
+        }
+        return executor;
+    }
+
+    /**
+     * @return virtual thread per task executor on Java 21+, otherwise a bounded pool of daemon threads
+     */
+    static @NotNull ExecutorService defaultExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            final int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+            final AtomicInteger counter = new AtomicInteger();
+            final ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                    threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(1024), task -> {
+                final Thread thread = new Thread(task, "DaViLib-click-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            pool.allowCoreThreadTimeOut(true);
+            return pool;
+        }
+    }
+
+    /**
+     * Run of a handler, that can be interrupted on timeout and keeps the click in flight until the handler returns
+     */
+    private final class Task implements Runnable {
+        private final Menu menu;
+        private final AsyncClickHandler handler;
+        private final AsyncClick click;
+        private final CompletableFuture<ClickResult> result = new CompletableFuture<>();
+        private @Nullable Thread runner;
+
+        private Task(final @NotNull Menu menu, final @NotNull AsyncClickHandler handler, final @NotNull AsyncClick click) {
+            this.menu = menu;
+            this.handler = handler;
+            this.click = click;
+        }
+
+        @Override
+        public void run() {
+            synchronized (this) {
+                if (this.result.isDone()) {
+                    // timed out before it started
+                    inFlight.remove(this.click.getPlayerId(), this);
+                    return;
+                }
+                this.runner = Thread.currentThread();
+            }
+            try {
+                this.result.complete(this.handler.handle(this.click));
+            } catch (Exception e) {
+                this.result.completeExceptionally(e);
+            } finally {
+                synchronized (this) {
+                    this.runner = null;
+                    // an interrupt of the timeout must not leak into the next task of the thread
+                    Thread.interrupted();
+                }
+                if (this.result.isCompletedExceptionally()) inFlight.remove(this.click.getPlayerId(), this);
+            }
+        }
+
+        private synchronized void interrupt() {
+            if (this.runner != null) this.runner.interrupt();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.danikvitek.davilib.menu;
+
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+
+/**
+ * Click handler that runs off the main thread, so it may block on database or other lookups.
+ * <p>
+ * {@link MenuHandler} cancels the click event synchronously, runs {@link #handle(AsyncClick)} on its
+ * {@link MenuHandler#setAsyncClickExecutor click executor} and applies the returned {@link ClickResult}
+ * on the main thread, if the player still has the menu opened. While a handler of a player is running,
+ * further async clicks of that player are dropped. A handler that exceeds its timeout is interrupted,
+ * so blocking calls should respond to interruption.
+ * <p>
+ * A {@link MenuHandler} created without a plugin runs the handler synchronously, on the thread of the click
+ */
+@FunctionalInterface
+public interface AsyncClickHandler extends ClickHandler {
+    /**
+     * The method to call on slot click, off the main thread
+     *
+     * @param click snapshot of the click
+     * @return the change to apply on the main thread, or {@code null} to do nothing
+     * @throws Exception if handling fails. The failure is logged and nothing is applied
+     */
+    @Nullable ClickResult handle(@NotNull AsyncClick click) throws Exception;
+
+    /**
+     * The time after which the result of {@link #handle(AsyncClick)} is discarded and the handler is interrupted
+     *
+     * @return the timeout of the handler, or {@code null} to use the one of the {@link MenuHandler}
+     */
+    default @Nullable Duration getTimeout() {
+        return null;
+    }
+
+    /**
+     * Async handlers are dispatched by {@link MenuHandler}, that passes the result of them to its menus.
+     * They can not be called directly
+     *
+     * @throws IllegalStateException always
+     */
+    @Override
+    default void onClick(final Menu menu, final InventoryClickEvent event) {
+        throw new IllegalStateException("AsyncClickHandler requires MenuHandler created with a plugin");
+    }
+}
@@ -0,0 +1,35 @@
+package com.danikvitek.davilib.menu;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Scheduler of classic servers, where the main thread owns everything
+ */
+final class BukkitMenuScheduler implements MenuScheduler {
+    private final Plugin plugin;
+
+    BukkitMenuScheduler(final @NotNull Plugin plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public boolean isOwnedByCurrentThread(final @NotNull Player player) {
+        return Bukkit.isPrimaryThread();
+    }
+
+    @Override
+    public void execute(final @NotNull Player player, final @NotNull Runnable task, final @Nullable Runnable retired) {
+        Bukkit.getScheduler().runTask(this.plugin, task);
+    }
+
+    @Override
+    public @NotNull Task runRepeating(final @NotNull Runnable task, final long period) {
+        final BukkitTask bukkitTask = Bukkit.getScheduler().runTaskTimer(this.plugin, task, 1, period);
+        return bukkitTask::cancel;
+    }
+}
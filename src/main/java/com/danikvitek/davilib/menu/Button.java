@@ -5,13 +5,19 @@ import org.bukkit.Material;
 import org.bukkit.event.inventory.InventoryClickEvent;
 import org.bukkit.inventory.ItemStack;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
 
 /**
  * The class to implement menu buttons.
  * It is abstract to easily implement functionality at the instantiation
+ * <p>
+ * A button is its own icon and click handler at once. Prefer a shared {@link Icon} with a stateless
+ * {@link ClickHandler} for buttons that are repeated across menus
  * @see Menu
  */
-public abstract class Button extends ItemStack {
+public abstract class Button extends ItemStack implements ClickHandler {
     /**
      * @param material button material
      */
@@ -35,10 +41,22 @@ public abstract class Button extends ItemStack {
     }
 
     /**
-     * The method to call on button click
+     * The method to call on button click. The event is already cancelled, unless {@link #isCancellingClicks()}
+     * returns {@code false}. Un-cancel it to let the item move
      *
      * @param menu the menu of the button
      * @param event button click event
      */
+    @Override
     public abstract void onClick(Menu menu, InventoryClickEvent event);
+
+    /**
+     * The minimal interval between two clicks of a player on this button
+     *
+     * @return the cooldown of the button, or {@code null} to use the one of the {@link ClickLimiter}
+     */
+    @Override
+    public @Nullable Duration getClickCooldown() {
+        return null;
+    }
 }
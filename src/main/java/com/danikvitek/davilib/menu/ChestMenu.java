@@ -1,6 +1,7 @@
 package com.danikvitek.davilib.menu;
 
 import org.bukkit.Bukkit;
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 /**
@@ -18,9 +19,9 @@ public abstract class ChestMenu<M extends ChestMenu<M>> extends Menu implements
      * @param rowsCount amount of rows in the menu
      */
     protected ChestMenu(final @Nullable String title, final int rowsCount) {
-        super(title != null
-                ? Bukkit.createInventory(null, getSlotCount(rowsCount), title)
-                : Bukkit.createInventory(null, getSlotCount(rowsCount))
+        super(holder -> title != null
+                ? Bukkit.createInventory(holder, getSlotCount(rowsCount), title)
+                : Bukkit.createInventory(holder, getSlotCount(rowsCount))
         );
         this.rowsCount = rowsCount;
     }
@@ -36,9 +37,65 @@ public abstract class ChestMenu<M extends ChestMenu<M>> extends Menu implements
     @SuppressWarnings("unchecked")
     @Override
     public M setButton(int slotX, int slotY, @Nullable Button button) {
+        return (M) this.setButton(this.toSlot(slotX, slotY), button);
+    }
+
+    /**
+     * Sets the icon and its click handler using grid coordinates
+     *
+     * @param slotX horizontal coordinate of the slot (from left to right)
+     * @param slotY vertical coordinate of the slot (from top to bottom)
+     * @param icon the icon to show in the slot
+     * @param handler the handler of the clicks on the slot. If {@code null} then the icon is only decorative
+     * @return this menu. Fluid API
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public M setButton(int slotX, int slotY, @NotNull Icon icon, @Nullable ClickHandler handler) {
+        return (M) this.setButton(this.toSlot(slotX, slotY), icon, handler);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public M fill(@NotNull SlotRegion region, @Nullable Button button) {
+        if (button == null) return this.clear(region);
+        this.fillSlots(this.toMask(region), button, button);
+        return (M) this;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public M fill(@NotNull SlotRegion region, @NotNull Icon icon, @Nullable ClickHandler handler) {
+        this.fillSlots(this.toMask(region), icon.item(), handler);
+        return (M) this;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public M clear(@NotNull SlotRegion region) {
+        this.clearSlots(this.toMask(region));
+        return (M) this;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public M move(@NotNull SlotRegion region, int dx, int dy) {
+        final SlotRegion target = region.translate(dx, dy);
+        this.toMask(target);
+        this.moveSlots(this.toMask(region), dy * 9 + dx);
+        return (M) this;
+    }
+
+    private long toMask(@NotNull SlotRegion region) {
+        if ((region.toMask() & ~SlotRegion.all(this.rowsCount).toMask()) != 0)
+            throw new IllegalArgumentException("Region exceeds the menu of " + this.rowsCount + " rows");
+        return region.toMask();
+    }
+
+    private int toSlot(int slotX, int slotY) {
         if (slotY < 0 || slotY >= this.rowsCount || slotX < 0 || slotX >= 9)
             throw new IllegalArgumentException(String.format("Illegal coordinates (%d, %d)", slotX, slotY));
-        return (M) this.setButton(slotY * 9 + slotX, button);
+        return slotY * 9 + slotX;
     }
 
     private static int getSlotCount(int rowsCount) {
@@ -0,0 +1,43 @@
+package com.danikvitek.davilib.menu;
+
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+
+/**
+ * Click logic of a menu slot, separated from its {@link Icon}.
+ * Handlers are expected to be stateless, so one instance may serve any amount of slots and menus
+ *
+ * @see Menu#setButton(int, Icon, ClickHandler)
+ */
+@FunctionalInterface
+public interface ClickHandler {
+    /**
+     * The method to call on slot click. The event is already cancelled, unless {@link #isCancellingClicks()}
+     * returns {@code false}. Un-cancel it to let the item move
+     *
+     * @param menu  the menu of the slot
+     * @param event slot click event
+     */
+    void onClick(Menu menu, InventoryClickEvent event);
+
+    /**
+     * The minimal interval between two clicks of a player on this handler's slot
+     *
+     * @return the cooldown of the handler, or {@code null} to use the one of the {@link ClickLimiter}
+     */
+    default @Nullable Duration getClickCooldown() {
+        return null;
+    }
+
+    /**
+     * Whether {@link MenuHandler} cancels the click on this handler's slot before calling it.
+     * Clicks that are rejected by the {@link ClickLimiter} and clicks on empty slots are cancelled regardless
+     *
+     * @return {@code false} to receive the event as the server has fired it, e.g. to let players take and place items
+     */
+    default boolean isCancellingClicks() {
+        return true;
+    }
+}
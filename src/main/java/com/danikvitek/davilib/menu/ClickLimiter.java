@@ -0,0 +1,182 @@
+package com.danikvitek.davilib.menu;
+
+import lombok.NonNull;
+import org.bukkit.event.inventory.ClickType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-player limiter of menu clicks, that is consulted by {@link MenuHandler} before a click is dispatched.
+ * <p>
+ * It combines three checks:
+ * <ul>
+ *     <li>rate limit: a token bucket of {@code burst} clicks per player, refilled at {@code clicksPerSecond}</li>
+ *     <li>debounce: the minimal interval between two clicks on the same slot, that may be overridden
+ *     per handler with {@link ClickHandler#getClickCooldown()}</li>
+ *     <li>coalescing: repeated clicks of the same type on the same slot within the coalescing window
+ *     are treated as one</li>
+ * </ul>
+ * State of a player is created on their first click and reused afterwards, so checking a click does not allocate.
+ * The debounce and coalescing state is per menu: it is reset when the player opens another menu
+ *
+ * @see MenuHandler#setClickLimiter(ClickLimiter)
+ * @see PluginMenuHandler#setClickLimiter(ClickLimiter)
+ */
+public class ClickLimiter {
+    /**
+     * Click time of a slot that was not clicked. Any clock value may be a valid time, e.g. {@code 0} of a simulated clock
+     */
+    private static final long NEVER = Long.MIN_VALUE;
+
+    private final double clicksPerNano;
+    private final int burst;
+    private final long debounceNanos;
+    private final long coalesceNanos;
+    private final LongSupplier clock;
+    private final ConcurrentMap<UUID, State> states = new ConcurrentHashMap<>();
+    /**
+     * Created once, so looking up the state of a player does not allocate a capturing lambda
+     */
+    private final Function<UUID, State> stateFactory = id -> new State(this.burst, this.clock.getAsLong());
+
+    /**
+     * @param clicksPerSecond the sustained amount of clicks a player may do per second
+     * @param burst           the amount of clicks a player may do at once
+     * @param debounce        the minimal interval between two clicks on the same slot
+     * @param coalesce        the window in which repeated clicks of the same type on the same slot are treated as one.
+     *                        It only has an effect when it is longer than the debounce interval
+     */
+    public ClickLimiter(final double clicksPerSecond,
+                        final int burst,
+                        final @NotNull @NonNull Duration debounce,
+                        final @NotNull @NonNull Duration coalesce) {
+        this(clicksPerSecond, burst, debounce, coalesce, System::nanoTime);
+    }
+
+    /**
+     * @param clicksPerSecond the sustained amount of clicks a player may do per second
+     * @param burst           the amount of clicks a player may do at once
+     * @param debounce        the minimal interval between two clicks on the same slot
+     * @param coalesce        the window in which repeated clicks of the same type on the same slot are treated as one.
+     *                        It only has an effect when it is longer than the debounce interval
+     * @param clock           the source of the time in nanoseconds, e.g. a simulated one
+     */
+    public ClickLimiter(final double clicksPerSecond,
+                        final int burst,
+                        final @NotNull @NonNull Duration debounce,
+                        final @NotNull @NonNull Duration coalesce,
+                        final @NotNull @NonNull LongSupplier clock) {
+        if (clicksPerSecond <= 0) throw new IllegalArgumentException("Clicks per second must be positive");
+        if (burst < 1) throw new IllegalArgumentException("Burst must be at least 1");
+        this.clicksPerNano = clicksPerSecond / 1_000_000_000d;
+        this.burst = burst;
+        this.debounceNanos = debounce.toNanos();
+        this.coalesceNanos = coalesce.toNanos();
+        this.clock = clock;
+    }
+
+    /**
+     * Creates a limiter that allows 10 clicks per second in bursts of 5 and clicks on the same slot every 50 ms,
+     * but coalesces repeated clicks of the same type on the same slot within 250 ms
+     */
+    public ClickLimiter() {
+        this(10, 5, Duration.ofMillis(50), Duration.ofMillis(250));
+    }
+
+    /**
+     * Checks the click and records it if it is allowed
+     *
+     * @param playerId  the id of the clicking player
+     * @param slot      the clicked slot of the menu
+     * @param clickType the type of the click
+     * @param handler   the handler of the clicked slot, if any
+     * @return {@code true} if the click may be dispatched
+     */
+    public boolean tryAcquire(final @NotNull @NonNull UUID playerId,
+                              final int slot,
+                              final @NotNull @NonNull ClickType clickType,
+                              final @Nullable ClickHandler handler) {
+        State state = this.states.get(playerId);
+        if (state == null) state = this.states.computeIfAbsent(playerId, this.stateFactory);
+        final long now = this.clock.getAsLong();
+        synchronized (state) {
+            if (slot == state.lastSlot && clickType == state.lastClickType && now - state.lastClickTime < this.coalesceNanos)
+                return false;
+
+            final Duration buttonCooldown = handler != null ? handler.getClickCooldown() : null;
+            final long cooldown = buttonCooldown != null ? buttonCooldown.toNanos() : this.debounceNanos;
+            if (slot >= 0 && slot < state.slotClickTimes.length
+                    && state.slotClickTimes[slot] != NEVER && now - state.slotClickTimes[slot] < cooldown)
+                return false;
+
+            state.tokens = Math.min(this.burst, state.tokens + (now - state.refillTime) * this.clicksPerNano);
+            state.refillTime = now;
+            if (state.tokens < 1) return false;
+            state.tokens -= 1;
+
+            state.lastSlot = slot;
+            state.lastClickType = clickType;
+            state.lastClickTime = now;
+            if (slot >= 0 && slot < state.slotClickTimes.length) state.slotClickTimes[slot] = now;
+            return true;
+        }
+    }
+
+    /**
+     * Forgets the clicks of the player on the slots, keeping their rate limit.
+     * Called by {@link MenuHandler} when the player opens another menu, which slots are unrelated to the previous one
+     *
+     * @param playerId the id of the player
+     */
+    public void onMenuOpen(final @NotNull @NonNull UUID playerId) {
+        final State state = this.states.get(playerId);
+        if (state == null) return;
+        synchronized (state) {
+            state.resetSlots();
+        }
+    }
+
+    /**
+     * Forgets the state of the player
+     *
+     * @param playerId the id of the player
+     */
+    public void reset(final @NotNull @NonNull UUID playerId) {
+        this.states.remove(playerId);
+    }
+
+    /**
+     * Click bookkeeping of a single player
+     */
+    private static final class State {
+        /**
+         * Times of the last clicks on the slots, {@link #NEVER} if not clicked
+         */
+        private final long[] slotClickTimes = new long[Menu.MAX_SLOTS];
+        private double tokens;
+        private long refillTime;
+        private int lastSlot = -1;
+        private @Nullable ClickType lastClickType;
+        private long lastClickTime;
+
+        private State(final int burst, final long now) {
+            this.tokens = burst;
+            this.refillTime = now;
+            Arrays.fill(this.slotClickTimes, NEVER);
+        }
+
+        private void resetSlots() {
+            Arrays.fill(this.slotClickTimes, NEVER);
+            this.lastSlot = -1;
+            this.lastClickType = null;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.danikvitek.davilib.menu;
+
+import lombok.NonNull;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.function.Consumer;
+
+/**
+ * Change of a menu produced by an {@link AsyncClickHandler}, that is applied on the main thread
+ */
+public final class ClickResult {
+    private static final ClickResult NONE = new ClickResult((handler, player, menu) -> {
+    });
+    private static final ClickResult CLOSE = new ClickResult((handler, player, menu) -> handler.closeMenu(player));
+
+    private final Action action;
+
+    private ClickResult(final @NotNull Action action) {
+        this.action = action;
+    }
+
+    /**
+     * @return the result that changes nothing
+     */
+    public static @NotNull ClickResult none() {
+        return NONE;
+    }
+
+    /**
+     * Fabric method
+     *
+     * @param slot   the slot to update
+     * @param button the button to set. If {@code null} then the slot is cleared
+     * @return the result that sets the button and flushes the menu
+     */
+    public static @NotNull ClickResult update(final int slot, final @Nullable Button button) {
+        return new ClickResult((handler, player, menu) -> menu.setButton(slot, button).flush());
+    }
+
+    /**
+     * Fabric method
+     *
+     * @param slot    the slot to update
+     * @param icon    the icon to show in the slot
+     * @param clickHandler the handler of the clicks on the slot. If {@code null} then the icon is only decorative
+     * @return the result that sets the icon and flushes the menu
+     */
+    public static @NotNull ClickResult update(final int slot,
+                                              final @NotNull @NonNull Icon icon,
+                                              final @Nullable ClickHandler clickHandler) {
+        return new ClickResult((handler, player, menu) -> menu.setButton(slot, icon, clickHandler).flush());
+    }
+
+    /**
+     * Fabric method
+     *
+     * @param next the menu to open instead of the clicked one
+     * @return the result that opens the menu
+     */
+    public static @NotNull ClickResult open(final @NotNull @NonNull Menu next) {
+        return new ClickResult((handler, player, menu) -> handler.openMenu(player, next));
+    }
+
+    /**
+     * @return the result that closes the menu
+     */
+    public static @NotNull ClickResult close() {
+        return CLOSE;
+    }
+
+    /**
+     * Fabric method
+     *
+     * @param change arbitrary change of the clicked menu. Call {@link Menu#flush()} to show it
+     * @return the result that runs the change
+     */
+    public static @NotNull ClickResult run(final @NotNull @NonNull Consumer<? super Menu> change) {
+        return new ClickResult((handler, player, menu) -> change.accept(menu));
+    }
+
+    /**
+     * @param next the result to apply after this one
+     * @return the result that applies both
+     */
+    public @NotNull ClickResult andThen(final @NotNull @NonNull ClickResult next) {
+        return new ClickResult((handler, player, menu) -> {
+            this.apply(handler, player, menu);
+            next.apply(handler, player, menu);
+        });
+    }
+
+    void apply(final @NotNull MenuHandler handler, final @NotNull Player player, final @NotNull Menu menu) {
+        this.action.apply(handler, player, menu);
+    }
+
+    @FunctionalInterface
+    private interface Action {
+        void apply(@NotNull MenuHandler handler, @NotNull Player player, @NotNull Menu menu);
+    }
+}
@@ -0,0 +1,88 @@
+package com.danikvitek.davilib.menu;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.function.Consumer;
+
+/**
+ * Scheduler of region-threaded servers (Folia). Player work runs on the entity scheduler of the player,
+ * repeating work runs on the global region scheduler.
+ * The API is reached through reflection, as it is absent from the Spigot API the library is built against
+ */
+final class FoliaMenuScheduler implements MenuScheduler {
+    private static final @Nullable Class<?> REGIONIZED_SERVER = findClass("io.papermc.paper.threadedregions.RegionizedServer");
+
+    private final Plugin plugin;
+    private final Method isOwnedByCurrentRegion;
+    private final Method getEntityScheduler;
+    private final Method entityExecute;
+    private final Object globalScheduler;
+    private final Method globalRunAtFixedRate;
+    private final Method scheduledTaskCancel;
+
+    FoliaMenuScheduler(final @NotNull Plugin plugin) {
+        this.plugin = plugin;
+        try {
+            this.isOwnedByCurrentRegion = Bukkit.class.getMethod("isOwnedByCurrentRegion", Entity.class);
+            this.getEntityScheduler = Entity.class.getMethod("getScheduler");
+            this.entityExecute = this.getEntityScheduler.getReturnType()
+                    .getMethod("execute", Plugin.class, Runnable.class, Runnable.class, long.class);
+            final Method getGlobalScheduler = Bukkit.class.getMethod("getGlobalRegionScheduler");
+            this.globalScheduler = getGlobalScheduler.invoke(null);
+            this.globalRunAtFixedRate = getGlobalScheduler.getReturnType()
+                    .getMethod("runAtFixedRate", Plugin.class, Consumer.class, long.class, long.class);
+            this.scheduledTaskCancel = this.globalRunAtFixedRate.getReturnType().getMethod("cancel");
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Region-threaded scheduler API is not available", e);
+        }
+    }
+
+    static boolean isSupported() {
+        return REGIONIZED_SERVER != null;
+    }
+
+    @Override
+    public boolean isOwnedByCurrentThread(final @NotNull Player player) {
+        return (boolean) this.invoke(this.isOwnedByCurrentRegion, null, player);
+    }
+
+    @Override
+    public void execute(final @NotNull Player player, final @NotNull Runnable task, final @Nullable Runnable retired) {
+        final Object scheduler = this.invoke(this.getEntityScheduler, player);
+        final boolean scheduled = (boolean) this.invoke(this.entityExecute, scheduler, this.plugin, task, retired, 1L);
+        if (!scheduled && retired != null) retired.run();
+    }
+
+    @Override
+    public @NotNull Task runRepeating(final @NotNull Runnable task, final long period) {
+        final Consumer<Object> consumer = scheduledTask -> task.run();
+        final Object scheduledTask = this.invoke(this.globalRunAtFixedRate, this.globalScheduler, this.plugin, consumer, 1L, period);
+        return () -> this.invoke(this.scheduledTaskCancel, scheduledTask);
+    }
+
+    private Object invoke(final @NotNull Method method, final @Nullable Object target, final Object... arguments) {
+        try {
+            return method.invoke(target, arguments);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static @Nullable Class<?> findClass(final @NotNull String name) {
+        try {
+            return Class.forName(name);
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.danikvitek.davilib.menu;
 
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 /**
@@ -18,4 +19,81 @@ public interface GridMenu<M extends Menu & GridMenu<M>> {
      * @return this menu. Fluid API
      */
     M setButton(final int slotX, final int slotY, final @Nullable Button button);
+
+    /**
+     * Sets the icon and its click handler using grid coordinates
+     *
+     * @param slotX horizontal coordinate of the slot (from left to right)
+     * @param slotY vertical coordinate of the slot (from top to bottom)
+     * @param icon the icon to show in the slot
+     * @param handler the handler of the clicks on the slot. If {@code null} then the icon is only decorative
+     * @return this menu. Fluid API
+     */
+    M setButton(final int slotX, final int slotY, final @NotNull Icon icon, final @Nullable ClickHandler handler);
+
+    /**
+     * Sets the button in all the slots of the region at once.
+     * By default, sets it slot by slot, taking the slots of the region as the slots of the menu
+     *
+     * @param region the slots to fill
+     * @param button the button to set. If {@code null} then the slots are cleared
+     * @return this menu. Fluid API
+     */
+    @SuppressWarnings("unchecked")
+    default M fill(final @NotNull SlotRegion region, final @Nullable Button button) {
+        final M menu = (M) this;
+        for (long rest = region.toMask(); rest != 0; rest &= rest - 1)
+            menu.setButton(Long.numberOfTrailingZeros(rest), button);
+        return menu;
+    }
+
+    /**
+     * Sets the icon and its click handler in all the slots of the region at once.
+     * By default, sets them slot by slot, taking the slots of the region as the slots of the menu
+     *
+     * @param region the slots to fill
+     * @param icon the icon to show in the slots
+     * @param handler the handler of the clicks on the slots. If {@code null} then the icon is only decorative
+     * @return this menu. Fluid API
+     */
+    @SuppressWarnings("unchecked")
+    default M fill(final @NotNull SlotRegion region, final @NotNull Icon icon, final @Nullable ClickHandler handler) {
+        final M menu = (M) this;
+        for (long rest = region.toMask(); rest != 0; rest &= rest - 1)
+            menu.setButton(Long.numberOfTrailingZeros(rest), icon, handler);
+        return menu;
+    }
+
+    /**
+     * Removes the buttons from all the slots of the region at once.
+     * By default, removes them slot by slot, taking the slots of the region as the slots of the menu
+     *
+     * @param region the slots to clear
+     * @return this menu. Fluid API
+     */
+    @SuppressWarnings("unchecked")
+    default M clear(final @NotNull SlotRegion region) {
+        final M menu = (M) this;
+        for (long rest = region.toMask(); rest != 0; rest &= rest - 1)
+            menu.removeButton(Long.numberOfTrailingZeros(rest));
+        return menu;
+    }
+
+    /**
+     * Moves the buttons of the region by the offset. Slots left behind become empty.
+     * Buttons already set in the target slots outside the region are overwritten, also by the empty slots of the region.
+     * By default, moves them slot by slot, taking the slots of the region as the slots of the menu
+     *
+     * @param region the slots to move
+     * @param dx columns to move to the right. Negative moves to the left
+     * @param dy rows to move down. Negative moves up
+     * @return this menu. Fluid API
+     */
+    @SuppressWarnings("unchecked")
+    default M move(final @NotNull SlotRegion region, final int dx, final int dy) {
+        region.translate(dx, dy);
+        final M menu = (M) this;
+        menu.moveSlots(region.toMask(), dy * SlotRegion.WIDTH + dx);
+        return menu;
+    }
 }
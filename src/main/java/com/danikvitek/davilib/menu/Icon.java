@@ -0,0 +1,81 @@
+package com.danikvitek.davilib.menu;
+
+import com.danikvitek.davilib.builder.ItemTemplate;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import lombok.NonNull;
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Immutable look of a menu slot, separated from its {@link ClickHandler}.
+ * <p>
+ * Icons are interned by the {@link ItemTemplate} of their item, and each canonical icon copies the item once,
+ * so structurally equal icons share one item across all the menus. Menus keep only a reference to that item;
+ * the inventory copies it when it is set into a slot
+ *
+ * @see Menu#setButton(int, Icon, ClickHandler)
+ */
+public final class Icon {
+    private static final Interner<Icon> INTERNER = Interners.newWeakInterner();
+
+    private final ItemTemplate template;
+    private volatile ItemStack item;
+
+    private Icon(final @NotNull ItemTemplate template) {
+        this.template = template;
+    }
+
+    /**
+     * Fabric method
+     *
+     * @param template the template of the item to show
+     * @return the icon of the item
+     */
+    public static @NotNull Icon of(final @NotNull @NonNull ItemTemplate template) {
+        return INTERNER.intern(new Icon(template));
+    }
+
+    /**
+     * Fabric method
+     *
+     * @param itemStack the item to show. It is copied, so later changes of it do not affect the icon
+     * @return the icon of the item
+     */
+    public static @NotNull Icon of(final @NotNull @NonNull ItemStack itemStack) {
+        return of(ItemTemplate.of(itemStack));
+    }
+
+    /**
+     * @return the template of the shown item
+     */
+    public @NotNull ItemTemplate toTemplate() {
+        return this.template;
+    }
+
+    /**
+     * @return the shown item itself. It must never be modified
+     */
+    @NotNull ItemStack item() {
+        ItemStack item = this.item;
+        if (item == null) this.item = item = this.template.newItem();
+        return item;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Icon)) return false;
+        return this.template.equals(((Icon) o).template);
+    }
+
+    @Override
+    public int hashCode() {
+        return this.template.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "Icon(" + this.template + ")";
+    }
+}
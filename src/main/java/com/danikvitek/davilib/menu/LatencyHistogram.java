@@ -0,0 +1,90 @@
+package com.danikvitek.davilib.menu;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent histogram of latencies with power-of-two buckets.
+ * Recording uses striped counters and does not allocate, so it is cheap enough to stay on in production
+ *
+ * @see MenuMetrics
+ */
+public final class LatencyHistogram {
+    /**
+     * Bucket {@code i} counts latencies in {@code [2^(i-1), 2^i)} nanoseconds. The last bucket is open-ended
+     */
+    private static final int BUCKETS = 40;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) this.buckets[i] = new LongAdder();
+    }
+
+    /**
+     * @param nanos the latency to record
+     */
+    public void record(final long nanos) {
+        final long value = Math.max(nanos, 0);
+        this.buckets[Math.min(Long.SIZE - Long.numberOfLeadingZeros(value), BUCKETS - 1)].increment();
+        this.count.increment();
+        this.totalNanos.add(value);
+        this.maxNanos.accumulate(value);
+    }
+
+    /**
+     * @return the amount of recorded latencies
+     */
+    public long getCount() {
+        return this.count.sum();
+    }
+
+    /**
+     * @return the sum of recorded latencies in nanoseconds
+     */
+    public long getTotalNanos() {
+        return this.totalNanos.sum();
+    }
+
+    /**
+     * @return the greatest recorded latency in nanoseconds
+     */
+    public long getMaxNanos() {
+        return this.maxNanos.get();
+    }
+
+    /**
+     * @return the average recorded latency in nanoseconds, or {@code 0} if nothing is recorded
+     */
+    public double getMeanNanos() {
+        final long count = this.getCount();
+        return count == 0 ? 0 : (double) this.getTotalNanos() / count;
+    }
+
+    /**
+     * @param quantile the quantile from 0 to 1, e.g. {@code 0.99}
+     * @return the upper bound of the bucket that contains the quantile, in nanoseconds
+     */
+    public long getQuantileNanos(final double quantile) {
+        if (quantile < 0 || quantile > 1) throw new IllegalArgumentException("Quantile must be from 0 to 1");
+        long remaining = (long) Math.ceil(this.getCount() * quantile);
+        for (int i = 0; i < BUCKETS - 1; i++) {
+            remaining -= this.buckets[i].sum();
+            if (remaining <= 0) return Math.min(1L << i, this.getMaxNanos());
+        }
+        return this.getMaxNanos();
+    }
+
+    /**
+     * Forgets all the recorded latencies
+     */
+    public void reset() {
+        for (final LongAdder bucket : this.buckets) bucket.reset();
+        this.count.reset();
+        this.totalNanos.reset();
+        this.maxNanos.reset();
+    }
+}
@@ -0,0 +1,22 @@
+package com.danikvitek.davilib.menu;
+
+import lombok.Getter;
+import lombok.NonNull;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Chest menu created from a {@link MenuLayout}. Creating it only copies the slot arrays of the layout
+ */
+public class LayoutMenu extends ChestMenu<LayoutMenu> {
+    @Getter
+    private final MenuLayout layout;
+
+    /**
+     * @param layout the layout to fill the menu with
+     */
+    public LayoutMenu(final @NotNull @NonNull MenuLayout layout) {
+        super(layout.getTitle(), layout.getRows());
+        this.layout = layout;
+        this.applyTemplate(layout.getTemplate());
+    }
+}
@@ -0,0 +1,97 @@
+package com.danikvitek.davilib.menu;
+
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Scheduler that runs nothing by itself: tasks wait until {@link #runPending()} or {@link #tick()} is called.
+ * Code run by those methods is treated as running on the owning thread.
+ * Meant for tests and benchmarks, where time has to be driven by hand
+ */
+public class ManualMenuScheduler implements MenuScheduler {
+    private final ArrayDeque<Runnable> pending = new ArrayDeque<>();
+    private final List<Repeating> repeating = new ArrayList<>();
+    private @Nullable Thread owner;
+    private long currentTick;
+
+    @Override
+    public synchronized boolean isOwnedByCurrentThread(final @NotNull Player player) {
+        return this.owner == Thread.currentThread();
+    }
+
+    @Override
+    public synchronized void execute(final @NotNull Player player, final @NotNull Runnable task, final @Nullable Runnable retired) {
+        this.pending.addLast(task);
+    }
+
+    @Override
+    public synchronized @NotNull Task runRepeating(final @NotNull Runnable task, final long period) {
+        final Repeating repeating = new Repeating(task, Math.max(1, period), this.currentTick + 1);
+        this.repeating.add(repeating);
+        return () -> {
+            synchronized (this) {
+                this.repeating.remove(repeating);
+            }
+        };
+    }
+
+    /**
+     * Runs the queued tasks, including the ones they queue
+     *
+     * @return the amount of run tasks
+     */
+    public synchronized int runPending() {
+        final Thread previous = this.owner;
+        this.owner = Thread.currentThread();
+        try {
+            int count = 0;
+            for (Runnable task; (task = this.pending.pollFirst()) != null; count++) task.run();
+            return count;
+        } finally {
+            this.owner = previous;
+        }
+    }
+
+    /**
+     * Advances the time by one tick: runs the due repeating tasks, then the queued tasks
+     */
+    public synchronized void tick() {
+        final long now = ++this.currentTick;
+        final Thread previous = this.owner;
+        this.owner = Thread.currentThread();
+        try {
+            for (final Repeating repeating : new ArrayList<>(this.repeating))
+                if (repeating.dueTick <= now && this.repeating.contains(repeating)) {
+                    repeating.dueTick = now + repeating.period;
+                    repeating.task.run();
+                }
+            this.runPending();
+        } finally {
+            this.owner = previous;
+        }
+    }
+
+    /**
+     * @return the amount of ticks advanced by {@link #tick()}
+     */
+    public synchronized long getCurrentTick() {
+        return this.currentTick;
+    }
+
+    private static final class Repeating {
+        private final Runnable task;
+        private final long period;
+        private long dueTick;
+
+        private Repeating(final @NotNull Runnable task, final long period, final long dueTick) {
+            this.task = task;
+            this.period = period;
+            this.dueTick = dueTick;
+        }
+    }
+}
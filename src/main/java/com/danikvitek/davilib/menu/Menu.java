@@ -1,16 +1,19 @@
 package com.danikvitek.davilib.menu;
 
-import lombok.Getter;
 import lombok.NonNull;
 import org.bukkit.entity.Player;
 import org.bukkit.event.inventory.InventoryClickEvent;
 import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryHolder;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.java.JavaPlugin;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
 
 /**
  * Base menu class for simple menu creation
@@ -19,23 +22,148 @@ import java.util.Map;
  * @see MenuHandler
  * @see GridMenu
  */
-public class Menu {
-    @Getter
-    private Inventory inventory;
-    private Map<Integer, Button> buttons;
+public class Menu implements InventoryHolder {
+    /**
+     * Maximal amount of slots a menu can have. Every inventory type fits into it
+     */
+    public static final int MAX_SLOTS = Long.SIZE;
+
+    private final Inventory inventory;
+    /**
+     * {@code true} if this menu is the holder of its inventory, so the {@link MenuHandler} recognizes it by reference
+     */
+    final boolean held;
+    /**
+     * Items shown in the slots. Either {@link Icon} items or {@link Button}s themselves
+     */
+    private final ItemStack[] items;
+    private final ClickHandler[] handlers;
+    /**
+     * Bitmask of the slots that hold a button. Bit {@code i} is set if {@code items[i] != null}
+     */
+    private long occupied;
+    /**
+     * Bitmask of the slots that changed since the last {@link #flush()}
+     */
+    private long dirty;
+    /**
+     * Amount of players the menu is opened for through a {@link MenuHandler}. Guarded by the monitor of the menu
+     */
+    int viewers;
+    /**
+     * Amount of references to the menu from the navigation histories of a {@link MenuHandler}.
+     * Guarded by the monitor of the menu
+     */
+    int holds;
+    /**
+     * {@code true} while the menu lies idle in its pool, so it is not recycled twice. Guarded by the monitor of the menu
+     */
+    boolean pooled;
+    /**
+     * {@link System#nanoTime()} of the last open or click of the menu through a {@link MenuHandler},
+     * or of the last flush that changed it, so animated and live menus count as active
+     */
+    volatile long lastActivity = System.nanoTime();
+    /**
+     * The pool that has given out this menu, if any
+     */
+    @Nullable MenuPool<?, ?> pool;
+    @Nullable Object poolKey;
+    /**
+     * The scheduler of the {@link MenuHandler} that has last opened the menu, if it has one.
+     * Routes the work that completes off the owning thread back to a viewer
+     */
+    volatile @Nullable MenuScheduler scheduler;
+    /**
+     * The plugin the menu belongs to, set explicitly or by the {@link PluginMenuHandler} that has opened it.
+     * Guessed from the class of the menu if not set
+     */
+    private volatile @Nullable Plugin owner;
 
     /**
      * @param inventory base inventory to create menu with.
-     * @apiNote Better use empty menu as it will later be filled with buttons
+     * @apiNote Better use empty menu as it will later be filled with buttons.
+     * Prefer {@link #Menu(Function)}, as events of inventories held by other holders are matched slower
      */
     @Contract(pure = true)
     public Menu(final @NotNull @NonNull Inventory inventory) {
+        if (inventory.getSize() > MAX_SLOTS)
+            throw new IllegalArgumentException("Inventory size must not exceed " + MAX_SLOTS);
+        this.inventory = inventory;
+        this.held = false;
+        this.items = new ItemStack[inventory.getSize()];
+        this.handlers = new ClickHandler[inventory.getSize()];
+    }
+
+    /**
+     * @param inventoryFactory factory of the empty base inventory, that is given this menu to use as the holder
+     */
+    protected Menu(final @NotNull @NonNull Function<? super Menu, ? extends Inventory> inventoryFactory) {
+        final Inventory inventory = inventoryFactory.apply(this);
+        if (inventory.getSize() > MAX_SLOTS)
+            throw new IllegalArgumentException("Inventory size must not exceed " + MAX_SLOTS);
         this.inventory = inventory;
-        this.buttons = new HashMap<>();
+        this.held = inventory.getHolder() == this;
+        this.items = new ItemStack[inventory.getSize()];
+        this.handlers = new ClickHandler[inventory.getSize()];
+    }
+
+    /**
+     * @return the base inventory of the menu
+     */
+    @Override
+    public @NotNull Inventory getInventory() {
+        return this.inventory;
     }
 
     /**
-     * Sets the button at the specific slot
+     * Sets the plugin the menu belongs to. A shared {@link MenuHandler} closes the menus of a plugin when it disables.
+     * Menus opened through a {@link PluginMenuHandler} are owned by its plugin, unless set explicitly
+     *
+     * @param owner the owning plugin. If {@code null} then it is set by the next open through a {@link PluginMenuHandler}
+     * @return this Menu. Fluent API
+     */
+    public Menu setOwner(final @Nullable Plugin owner) {
+        this.owner = owner;
+        return this;
+    }
+
+    /**
+     * @return the plugin the menu belongs to. Unless set explicitly or by the {@link PluginMenuHandler} that has opened it,
+     * it is guessed as the plugin that loaded the class of the menu, which is wrong for the menu classes of the library
+     * itself, like {@link LayoutMenu}. {@code null} if there is no owner
+     */
+    public @Nullable Plugin getOwner() {
+        final Plugin owner = this.owner;
+        if (owner != null) return owner;
+        try {
+            return JavaPlugin.getProvidingPlugin(this.getClass());
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Sets the owner of the menu, unless it is already set
+     *
+     * @param owner the plugin that opens the menu
+     */
+    void stampOwner(final @NotNull Plugin owner) {
+        if (this.owner == null) this.owner = owner;
+    }
+
+    /**
+     * Called by {@link MenuPool} before the released menu is reset to its template.
+     * Subclasses that keep state beside the slots must override it to drop that state, calling the super method
+     */
+    protected void onRecycle() {
+        this.owner = null;
+        this.lastActivity = System.nanoTime();
+    }
+
+    /**
+     * Sets the button at the specific slot.
+     * The change becomes visible on the next {@link #flush()}
      *
      * @param slot   the slot to set button in. Typically, counted from top left corner to bottom right one
      * @param button the button to set in the slot
@@ -43,32 +171,310 @@ public class Menu {
      */
     public Menu setButton(final int slot, final @Nullable Button button) {
         if (button == null) return this.removeButton(slot);
-        this.buttons.put(slot, button);
+        this.checkSlot(slot);
+        this.set(slot, button, button);
+        return this;
+    }
+
+    /**
+     * Sets the icon and its click handler at the specific slot.
+     * The change becomes visible on the next {@link #flush()}
+     *
+     * @param slot    the slot to set button in. Typically, counted from top left corner to bottom right one
+     * @param icon    the icon to show in the slot
+     * @param handler the handler of the clicks on the slot. If {@code null} then the icon is only decorative
+     * @return this Menu. Fluent API
+     */
+    public Menu setButton(final int slot, final @NotNull @NonNull Icon icon, final @Nullable ClickHandler handler) {
+        this.checkSlot(slot);
+        this.set(slot, icon.item(), handler);
         return this;
     }
 
     /**
-     * Removes the button from the specified slot
+     * Removes the button from the specified slot.
+     * The change becomes visible on the next {@link #flush()}
      *
      * @param slot the slot to remove button from. Typically, counted from top left corner to bottom right one
      * @return this Menu. Fluent API
      */
     public Menu removeButton(final int slot) {
-        this.buttons.remove(slot);
-        this.inventory.setItem(slot, null);
+        this.checkSlot(slot);
+        this.items[slot] = null;
+        this.handlers[slot] = null;
+        this.occupied &= ~(1L << slot);
+        this.dirty |= 1L << slot;
         return this;
     }
 
+    private void set(final int slot, final @NotNull ItemStack item, final @Nullable ClickHandler handler) {
+        this.items[slot] = item;
+        this.handlers[slot] = handler;
+        this.occupied |= 1L << slot;
+        this.dirty |= 1L << slot;
+    }
+
+    /**
+     * Sets the same item and handler in all the slots of the mask at once
+     *
+     * @param mask bitmask of the slots
+     */
+    void fillSlots(final long mask, final @NotNull ItemStack item, final @Nullable ClickHandler handler) {
+        this.checkMask(mask);
+        for (long rest = mask; rest != 0; rest &= rest - 1) {
+            final int slot = Long.numberOfTrailingZeros(rest);
+            this.items[slot] = item;
+            this.handlers[slot] = handler;
+        }
+        this.occupied |= mask;
+        this.dirty |= mask;
+    }
+
+    /**
+     * Removes the buttons from all the slots of the mask at once
+     *
+     * @param mask bitmask of the slots
+     */
+    void clearSlots(final long mask) {
+        this.checkMask(mask);
+        for (long rest = mask & this.occupied; rest != 0; rest &= rest - 1) {
+            final int slot = Long.numberOfTrailingZeros(rest);
+            this.items[slot] = null;
+            this.handlers[slot] = null;
+        }
+        this.dirty |= mask & this.occupied;
+        this.occupied &= ~mask;
+    }
+
+    /**
+     * Moves the buttons of the slots of the mask by the offset. Slots left behind become empty.
+     * The target slots are overwritten, also by the empty slots of the mask
+     *
+     * @param mask  bitmask of the slots to move
+     * @param shift the offset to add to every slot
+     */
+    void moveSlots(final long mask, final int shift) {
+        final long target = shift >= 0 ? mask << shift : mask >>> -shift;
+        this.checkMask(mask);
+        this.checkMask(target);
+        if (Long.bitCount(target) != Long.bitCount(mask))
+            throw new IllegalArgumentException("Slots can not be moved by " + shift);
+
+        final int count = Long.bitCount(mask);
+        final ItemStack[] items = new ItemStack[count];
+        final ClickHandler[] handlers = new ClickHandler[count];
+        int i = 0;
+        for (long rest = mask; rest != 0; rest &= rest - 1, i++) {
+            final int slot = Long.numberOfTrailingZeros(rest);
+            items[i] = this.items[slot];
+            handlers[i] = this.handlers[slot];
+            this.items[slot] = null;
+            this.handlers[slot] = null;
+        }
+        final long wasOccupied = this.occupied;
+        this.occupied &= ~(mask | target);
+        i = 0;
+        for (long rest = mask; rest != 0; rest &= rest - 1, i++) {
+            final int slot = Long.numberOfTrailingZeros(rest) + shift;
+            this.items[slot] = items[i];
+            this.handlers[slot] = handlers[i];
+            if (items[i] != null) this.occupied |= 1L << slot;
+        }
+        this.dirty |= (mask | target) & (wasOccupied | this.occupied);
+    }
+
+    private void checkMask(final long mask) {
+        if (this.items.length < Long.SIZE && mask >>> this.items.length != 0)
+            throw new IndexOutOfBoundsException("Slots exceed the menu of size " + this.items.length);
+    }
+
+    /**
+     * @return immutable snapshot of the current buttons of the menu
+     */
+    public @NotNull SlotTemplate toTemplate() {
+        return new SlotTemplate(this.items.clone(), this.handlers.clone());
+    }
+
+    /**
+     * Replaces all the buttons of the menu with the ones of the template.
+     * Only the slots that differ are redrawn on the next {@link #flush()}
+     *
+     * @param template the template to apply. It must have the same size as the menu
+     * @return this Menu. Fluent API
+     */
+    public Menu applyTemplate(final @NotNull @NonNull SlotTemplate template) {
+        if (template.getSize() != this.items.length)
+            throw new IllegalArgumentException(String.format(
+                    "Template of size %d does not fit the menu of size %d", template.getSize(), this.items.length));
+        final ItemStack[] items = template.items();
+        for (long rest = this.occupied | template.occupied(); rest != 0; rest &= rest - 1) {
+            final int slot = Long.numberOfTrailingZeros(rest);
+            if (this.items[slot] != items[slot]) this.dirty |= 1L << slot;
+        }
+        System.arraycopy(items, 0, this.items, 0, items.length);
+        System.arraycopy(template.handlers(), 0, this.handlers, 0, items.length);
+        this.occupied = template.occupied();
+        return this;
+    }
+
+    /**
+     * Marks the slot as changed, so it is redrawn on the next {@link #flush()}.
+     * Use it after mutating a button that is already set in the menu
+     *
+     * @param slot the slot to redraw. Typically, counted from top left corner to bottom right one
+     * @return this Menu. Fluent API
+     */
+    public Menu invalidate(final int slot) {
+        this.checkSlot(slot);
+        this.dirty |= 1L << slot;
+        return this;
+    }
+
+    /**
+     * Marks every slot as changed, so the whole menu is redrawn on the next {@link #flush()}
+     *
+     * @return this Menu. Fluent API
+     */
+    public Menu invalidateAll() {
+        // -1L >>> 64 would set every bit, as shifts are taken modulo 64
+        this.dirty = this.items.length == 0 ? 0 : -1L >>> (Long.SIZE - this.items.length);
+        return this;
+    }
+
+    /**
+     * Pushes the slots changed since the last flush into the inventory.
+     * The server then sends only those slots to the current viewers,
+     * so calling it when nothing changed costs nothing
+     *
+     * @return this Menu. Fluent API
+     */
+    public Menu flush() {
+        final long mask = this.dirty;
+        this.dirty = 0;
+        if (mask != 0) {
+            this.render(mask);
+            this.lastActivity = System.nanoTime();
+        }
+        return this;
+    }
+
+    /**
+     * Flushes the menu from a thread that may not own its viewers.
+     * Called on the thread of one of the viewers, the parts personal to other viewers are routed to their threads
+     *
+     * @param scheduler the scheduler to route the personal parts with
+     */
+    void flush(final @NotNull MenuScheduler scheduler) {
+        this.flush();
+    }
+
+    /**
+     * Pushes the buttons of the given slots into the inventory
+     *
+     * @param mask bitmask of the slots to push
+     */
+    void render(final long mask) {
+        for (long rest = mask; rest != 0; rest &= rest - 1) {
+            final int slot = Long.numberOfTrailingZeros(rest);
+            this.inventory.setItem(slot, this.items[slot]);
+        }
+    }
+
+    /**
+     * @return {@code true} if some slots changed since the last {@link #flush()}
+     */
+    public boolean isDirty() {
+        return this.dirty != 0;
+    }
+
+    /**
+     * @param slot the slot to get handler from. Typically, counted from top left corner to bottom right one
+     * @return the click handler of the slot, or {@code null} if the slot is empty or decorative
+     */
+    public @Nullable ClickHandler getHandler(final int slot) {
+        this.checkSlot(slot);
+        return this.handlers[slot];
+    }
+
+    /**
+     * @param slot the slot to check. Typically, counted from top left corner to bottom right one
+     * @return {@code true} if the slot holds a button or an icon
+     */
+    public boolean isOccupied(final int slot) {
+        this.checkSlot(slot);
+        return (this.occupied & 1L << slot) != 0;
+    }
+
+    /**
+     * @param slot the slot to get item from
+     * @return the item shown in the slot. It must never be modified
+     */
+    @Nullable ItemStack itemAt(final int slot) {
+        return this.items[slot];
+    }
+
+    /**
+     * @return the amount of slots in this menu
+     */
+    public int getSize() {
+        return this.items.length;
+    }
+
+    /**
+     * Roughly estimates the heap this menu keeps reachable: the slot arrays, the inventory and the items.
+     * Items shared with other menus are counted as well, so the estimate is an upper bound
+     *
+     * @return estimated retained size in bytes
+     */
+    public long estimateRetainedSize() {
+        long size = 64 + 2L * (16 + 4L * this.items.length) + 128 + 16L * this.items.length;
+        for (long rest = this.occupied; rest != 0; rest &= rest - 1)
+            size += this.items[Long.numberOfTrailingZeros(rest)].hasItemMeta() ? 512 : 64;
+        return size;
+    }
+
+    void checkSlot(final int slot) {
+        if (slot < 0 || slot >= this.items.length)
+            throw new IndexOutOfBoundsException(String.format("Illegal slot %d for the menu of size %d", slot, this.items.length));
+    }
+
+    /**
+     * @param viewerId the id of the viewer
+     * @param slot     the slot to get handler from
+     * @return the handler of the slot the viewer sees, or {@code null} if there is none or the slot is out of the menu
+     */
+    @Nullable ClickHandler viewHandler(final @NotNull UUID viewerId, final int slot) {
+        return slot >= 0 && slot < this.handlers.length ? this.handlers[slot] : null;
+    }
+
     void performClick(final @NotNull @NonNull InventoryClickEvent event) {
-        if (this.buttons.get(event.getSlot()) != null) this.buttons.get(event.getSlot()).onClick(this, event);
+        final ClickHandler handler = this.viewHandler(event.getWhoClicked().getUniqueId(), event.getSlot());
+        if (handler == null) return;
+        final MenuMetrics metrics = MenuMetrics.global();
+        final boolean measured = metrics.isEnabled();
+        final long start = measured ? System.nanoTime() : 0;
+        handler.onClick(this, event);
+        if (measured) metrics.recordHandler(handler.getClass(), start);
+    }
+
+    /**
+     * @param viewerId the id of the viewer
+     * @return the inventory that is shown to the viewer
+     */
+    @NotNull Inventory viewInventory(final @NotNull UUID viewerId) {
+        return this.inventory;
     }
 
-    private void loadButtons() {
-        buttons.forEach(inventory::setItem);
+    /**
+     * Called by {@link MenuHandler} when the viewer no longer has this menu opened
+     *
+     * @param viewerId the id of the viewer
+     */
+    void onClose(final @NotNull UUID viewerId) {
     }
 
     void open(final @NotNull @NonNull Player player) {
-        loadButtons();
-        player.openInventory(inventory);
+        flush();
+        player.openInventory(viewInventory(player.getUniqueId()));
     }
 }
@@ -0,0 +1,191 @@
+package com.danikvitek.davilib.menu;
+
+import lombok.NonNull;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+
+/**
+ * Single tick-driven scheduler of all the {@link AnimatedMenu}s opened through a {@link MenuHandler}.
+ * <p>
+ * Every tick it walks the opened animated menus in round-robin order, animates those that are due and flushes
+ * their changes. Once the per-tick time budget is spent, the rest of the due menus are left for the next ticks,
+ * so animations slow down instead of causing a lag spike. The task runs only while there are animated menus
+ *
+ * @apiNote On region-threaded servers the frames are scheduled by the global region thread,
+ * but every frame is animated and flushed on the thread of a viewer of the menu,
+ * and the personal parts of {@link SharedMenu}s are flushed on the threads of their viewers
+ * @see MenuHandler#getAnimator()
+ */
+public class MenuAnimator {
+    private final Plugin plugin;
+    private final MenuScheduler scheduler;
+    private final ArrayDeque<Entry> queue = new ArrayDeque<>();
+    private final Map<Menu, Entry> entries = new IdentityHashMap<>();
+    private long tickBudgetNanos = Duration.ofMillis(2).toNanos();
+    private boolean shared;
+    private long tick;
+    private MenuScheduler.@Nullable Task task;
+
+    MenuAnimator(final @NotNull @NonNull Plugin plugin, final @NotNull @NonNull MenuScheduler scheduler) {
+        this.plugin = plugin;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * @param tickBudget the maximal time to spend on animations per tick
+     * @throws IllegalStateException if the animator belongs to the shared {@link MenuHandler}
+     */
+    public synchronized void setTickBudget(final @NotNull @NonNull Duration tickBudget) {
+        if (this.shared) throw new IllegalStateException("Tick budget of the shared MenuHandler can not be changed");
+        if (tickBudget.isNegative() || tickBudget.isZero())
+            throw new IllegalArgumentException("Tick budget must be positive");
+        this.tickBudgetNanos = tickBudget.toNanos();
+    }
+
+    /**
+     * @return the maximal time to spend on animations per tick
+     */
+    public synchronized @NotNull Duration getTickBudget() {
+        return Duration.ofNanos(this.tickBudgetNanos);
+    }
+
+    /**
+     * @return the amount of animated menus that are opened
+     */
+    public synchronized int getAnimatedCount() {
+        return this.entries.size();
+    }
+
+    /**
+     * Fixes the settings of the animator, as its handler is shared by several plugins
+     */
+    synchronized void share() {
+        this.shared = true;
+    }
+
+    /**
+     * Starts animating the menu, if it is the first viewer of it
+     *
+     * @param menu     the opened menu
+     * @param viewerId the id of the viewer
+     */
+    synchronized void retain(final @NotNull Menu menu, final @NotNull UUID viewerId) {
+        if (!(menu instanceof AnimatedMenu)) return;
+        final Entry entry = this.entries.get(menu);
+        if (entry != null) {
+            entry.viewers.add(viewerId);
+            return;
+        }
+        final Entry created = new Entry(menu);
+        created.viewers.add(viewerId);
+        this.entries.put(menu, created);
+        this.queue.addLast(created);
+        if (this.task == null) this.task = this.scheduler.runRepeating(this::tick, 1);
+    }
+
+    /**
+     * Stops animating the menu, if it was the last viewer of it
+     *
+     * @param menu     the closed menu
+     * @param viewerId the id of the viewer
+     */
+    synchronized void release(final @NotNull Menu menu, final @NotNull UUID viewerId) {
+        final Entry entry = this.entries.get(menu);
+        if (entry == null) return;
+        entry.viewers.remove(viewerId);
+        if (!entry.viewers.isEmpty()) return;
+        this.entries.remove(menu);
+        this.queue.remove(entry);
+        if (this.queue.isEmpty()) this.stop();
+    }
+
+    /**
+     * Stops animating all the menus
+     */
+    synchronized void stop() {
+        if (this.task != null) {
+            this.task.cancel();
+            this.task = null;
+        }
+        this.entries.clear();
+        this.queue.clear();
+    }
+
+    private synchronized void tick() {
+        final long now = ++this.tick;
+        final long deadline = System.nanoTime() + this.tickBudgetNanos;
+        for (int i = 0, count = this.queue.size(); i < count; i++) {
+            final Entry entry = this.queue.peekFirst();
+            if (entry == null) return;
+            if (entry.dueTick > now) {
+                this.queue.addLast(this.queue.pollFirst());
+                continue;
+            }
+            // the rest of the due menus keep their place at the head of the queue for the next tick
+            if (System.nanoTime() - deadline > 0) return;
+            this.queue.addLast(this.queue.pollFirst());
+
+            entry.dueTick = now + Math.max(1, ((AnimatedMenu) entry.menu).getAnimationPeriod());
+            this.schedule(entry, now);
+        }
+    }
+
+    /**
+     * Runs the frame on the thread of the first online viewer of the menu.
+     * A frame still waiting for that thread is not scheduled again, so a busy region skips frames
+     */
+    private void schedule(final @NotNull Entry entry, final long now) {
+        for (final UUID viewerId : entry.viewers) {
+            final Player viewer = Bukkit.getPlayer(viewerId);
+            if (viewer == null) continue;
+            if (this.scheduler.isOwnedByCurrentThread(viewer)) this.frame(entry, now);
+            else if (entry.pending.compareAndSet(false, true))
+                this.scheduler.execute(viewer, () -> {
+                    entry.pending.set(false);
+                    this.frame(entry, now);
+                }, () -> entry.pending.set(false));
+            return;
+        }
+    }
+
+    /**
+     * Animates the menu and flushes its changes at once, holding the monitor of the menu
+     */
+    private void frame(final @NotNull Entry entry, final long now) {
+        try {
+            synchronized (entry.menu) {
+                ((AnimatedMenu) entry.menu).animate(now);
+                entry.menu.flush(this.scheduler);
+            }
+        } catch (RuntimeException e) {
+            this.plugin.getLogger().log(Level.WARNING, "Failed to animate " + entry.menu.getClass().getName(), e);
+        }
+    }
+
+    /**
+     * Animation state of a single opened menu
+     */
+    private static final class Entry {
+        private final Menu menu;
+        private final List<UUID> viewers = new ArrayList<>(1);
+        private long dueTick;
+        private final AtomicBoolean pending = new AtomicBoolean();
+
+        private Entry(final @NotNull Menu menu) {
+            this.menu = menu;
+        }
+    }
+}
@@ -7,33 +7,359 @@ import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
 import org.bukkit.event.entity.PlayerDeathEvent;
+import org.bukkit.event.inventory.InventoryAction;
 import org.bukkit.event.inventory.InventoryClickEvent;
 import org.bukkit.event.inventory.InventoryCloseEvent;
+import org.bukkit.event.inventory.InventoryDragEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.server.PluginDisableEvent;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryHolder;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.WeakHashMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.logging.Level;
 
 /**
  * Utility class for handling menus
- * @apiNote Do not forget to register events from {@link MenuHandler#getListeners()}
+ * @apiNote Do not forget to register events from {@link MenuHandler#getListeners()}.
+ * Plugins that depend on DaViLib should rather use the shared handler from {@link com.danikvitek.davilib.DaViLib#getMenuHandler(Plugin)},
+ * which is already registered, so every menu event is dispatched once for all the plugins.
+ * The settings of the shared handler are fixed, plugins configure their {@link PluginMenuHandler views} instead
  */
 public class MenuHandler {
+    private static final long DEFAULT_SWEEP_PERIOD = 600;
+
     private final ConcurrentMap<UUID, Menu> openedMenus = new ConcurrentHashMap<>();
+    /**
+     * Tickets of the asynchronous opens in flight. A ticket is valid until anything else opens or closes a menu
+     */
+    private final ConcurrentMap<UUID, PendingOpen> pendingOpens = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Plugin, PluginMenuHandler> views = new ConcurrentHashMap<>();
+    /**
+     * Whether the handler is shared by several plugins, so its global settings can not be changed
+     */
+    private volatile boolean shared;
+    private final @Nullable Plugin plugin;
+    private final @Nullable MenuScheduler scheduler;
+    private final @Nullable MenuAnimator animator;
+    private final @Nullable AsyncClickDispatcher asyncClicks;
+    /**
+     * Amount of opened menus that are not the holders of their inventories, thus can not be recognized by reference
+     */
+    private final AtomicInteger detachedViews = new AtomicInteger();
+    private final MenuHistory history = new MenuHistory(this::releaseIfUnused);
+    private volatile @Nullable ClickLimiter clickLimiter;
+    private @Nullable Listener listener;
+    private @Nullable MenuScheduler.Task sweeper;
+    private volatile long idleTimeoutNanos;
+    /**
+     * Amount of menus the sweeper has found opened by this handler, but not shown to their players
+     */
+    private final AtomicLong orphanedMenus = new AtomicLong();
+    /**
+     * Pools of the menus opened by this handler, whose idle menus are evicted by the sweeper
+     */
+    private final Set<MenuPool<?, ?>> pools = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
 
     /**
-     * Opens the menu for the player
+     * Creates a handler that can only open menus synchronously, on the thread it is called from
+     */
+    public MenuHandler() {
+        this.plugin = null;
+        this.scheduler = null;
+        this.animator = null;
+        this.asyncClicks = null;
+    }
+
+    /**
+     * Creates a handler that routes menu work to the owning threads of the running server.
+     * Its opened menus are swept every 600 ticks, until it is {@link #close() closed}
+     *
+     * @param plugin the plugin to schedule tasks with
+     * @see MenuScheduler#of(Plugin)
+     */
+    public MenuHandler(final @NotNull @NonNull Plugin plugin) {
+        this(plugin, MenuScheduler.of(plugin));
+    }
+
+    /**
+     * @param plugin    the plugin to log with
+     * @param scheduler the scheduler to route opens, updates and closes to the owning threads with
+     */
+    public MenuHandler(final @NotNull @NonNull Plugin plugin, final @NotNull @NonNull MenuScheduler scheduler) {
+        this.plugin = plugin;
+        this.scheduler = scheduler;
+        this.animator = new MenuAnimator(plugin, scheduler);
+        this.asyncClicks = new AsyncClickDispatcher(plugin, scheduler, this);
+        this.sweeper = scheduler.runRepeating(this::sweep, DEFAULT_SWEEP_PERIOD);
+    }
+
+    /**
+     * Opens the menu for the player. The menu it replaces is kept in the navigation history.
+     * If called off the thread that owns the player, the menu is opened there later
      *
      * @param player the player to open menu for
      * @param menu   the menu to open
+     * @see #back(Player)
      */
     public void openMenu(final @NotNull @NonNull Player player,
                          final @NotNull @NonNull Menu menu) {
-        openedMenus.put(player.getUniqueId(), menu);
+        this.openMenu(player, menu, true, false);
+    }
+
+    /**
+     * @param record      whether to record the replaced menu in the navigation history
+     * @param fromHistory whether the menu is taken out of the navigation history. Its hold is released once it is viewed
+     */
+    private void openMenu(final @NotNull Player player, final @NotNull Menu menu, final boolean record, final boolean fromHistory) {
+        if (scheduler != null && !scheduler.isOwnedByCurrentThread(player)) {
+            scheduler.execute(player, () -> openMenu(player, menu, record, fromHistory),
+                    fromHistory ? () -> releaseHold(menu) : null);
+            return;
+        }
+        try {
+            this.showMenu(player, menu, record);
+        } finally {
+            if (fromHistory) releaseHold(menu);
+        }
+    }
+
+    private void showMenu(final @NotNull Player player, final @NotNull Menu menu, final boolean record) {
+        final UUID playerId = player.getUniqueId();
+        pendingOpens.remove(playerId);
+        final Menu previous = openedMenus.put(playerId, menu);
+        if (previous == menu
+                && menu.viewInventory(playerId).equals(player.getOpenInventory().getTopInventory())) {
+            menu.flush();
+            return;
+        }
+        if (previous != menu) {
+            if (previous != null) {
+                if (record) history.visit(playerId, previous);
+                menuClosed(playerId, previous);
+            }
+            synchronized (menu) {
+                menu.viewers++;
+            }
+            menu.lastActivity = System.nanoTime();
+            if (scheduler != null) menu.scheduler = scheduler;
+            if (!menu.held) detachedViews.incrementAndGet();
+            if (menu.pool != null) pools.add(menu.pool);
+            if (animator != null) animator.retain(menu, playerId);
+            resetClickSlots(playerId);
+        }
+        final boolean measured = MenuMetrics.global().isEnabled();
+        final long start = measured ? System.nanoTime() : 0;
         menu.open(player);
+        if (measured) MenuMetrics.global().recordOpen(menu.getClass(), start);
+    }
+
+    /**
+     * Resets the per-slot click state of the player in the global limiter and the limiters of all the plugins
+     */
+    private void resetClickSlots(final @NotNull UUID playerId) {
+        ClickLimiter limiter = clickLimiter;
+        if (limiter != null) limiter.onMenuOpen(playerId);
+        for (PluginMenuHandler view : views.values()) {
+            limiter = view.clickLimiter();
+            if (limiter != null) limiter.onMenuOpen(playerId);
+        }
+    }
+
+    /**
+     * Builds the menu on the executor and opens it for the player on the main thread
+     *
+     * @param player      the player to open menu for
+     * @param menuFactory the factory that creates and fills the menu. It is called on the executor,
+     *                    so it must not touch the world, but it may block on database or other lookups
+     * @param executor    the executor to build the menu with
+     * @param <M>         type of the menu
+     * @return the future that completes with the opened menu on the thread that owns the player.
+     * It is cancelled if the player leaves or opens or closes a menu before the build finishes
+     * @see #openMenuAsync(Player, Supplier, Executor, Menu)
+     */
+    public <M extends Menu> @NotNull CompletableFuture<M> openMenuAsync(final @NotNull Player player,
+                                                                        final @NotNull Supplier<? extends M> menuFactory,
+                                                                        final @NotNull Executor executor) {
+        return this.openMenuAsync(player, menuFactory, executor, null);
+    }
+
+    /**
+     * Builds the menu on the executor and opens it for the player on the main thread.
+     * While the menu is being built, the placeholder is shown to the player
+     *
+     * @param player      the player to open menu for
+     * @param menuFactory the factory that creates and fills the menu. It is called on the executor,
+     *                    so it must not touch the world, but it may block on database or other lookups
+     * @param executor    the executor to build the menu with
+     * @param placeholder the menu to show while the build is in flight. If {@code null} then nothing is shown
+     * @param <M>         type of the menu
+     * @return the future that completes with the opened menu on the thread that owns the player.
+     * It is cancelled if the player leaves, closes the placeholder or opens another menu before the build finishes.
+     * The placeholder is not recorded in the navigation history, and if the build fails, the menu it has replaced is reopened
+     * @throws IllegalStateException if the handler was created without a plugin
+     */
+    public <M extends Menu> @NotNull CompletableFuture<M> openMenuAsync(final @NotNull @NonNull Player player,
+                                                                        final @NotNull @NonNull Supplier<? extends M> menuFactory,
+                                                                        final @NotNull @NonNull Executor executor,
+                                                                        final @Nullable Menu placeholder) {
+        return this.openMenuAsync(player, menuFactory, executor, placeholder, null);
+    }
+
+    /**
+     * @param owner the plugin the opened menus are stamped with, and whose disable cancels the open
+     */
+    <M extends Menu> @NotNull CompletableFuture<M> openMenuAsync(final @NotNull Player player,
+                                                                 final @NotNull Supplier<? extends M> menuFactory,
+                                                                 final @NotNull Executor executor,
+                                                                 final @Nullable Menu placeholder,
+                                                                 final @Nullable Plugin owner) {
+        final MenuScheduler scheduler = this.scheduler;
+        if (scheduler == null)
+            throw new IllegalStateException("Asynchronous opening requires MenuHandler created with a plugin");
+
+        final UUID playerId = player.getUniqueId();
+        final CompletableFuture<M> result = new CompletableFuture<>();
+        final PendingOpen ticket = new PendingOpen(owner, result);
+        if (owner != null && placeholder != null) placeholder.stampOwner(owner);
+        scheduler.run(player, () -> {
+            if (placeholder != null) {
+                // the replaced menu is recorded in the history, so it is kept to be restored if the build fails
+                ticket.previous = openedMenus.get(playerId);
+                openMenu(player, placeholder);
+            }
+            pendingOpens.put(playerId, ticket);
+        });
+
+        // completed on the executor thread, so the player is checked to be online only on their own thread
+        CompletableFuture.supplyAsync(menuFactory, executor).whenComplete((menu, error) -> {
+            try {
+                scheduler.execute(player, () -> {
+                    if (!pendingOpens.remove(playerId, ticket)) {
+                        result.completeExceptionally(new CancellationException("Menu open was superseded"));
+                        return;
+                    }
+                    if (error != null || !player.isOnline()) {
+                        if (placeholder != null) {
+                            if (player.isOnline()) restorePrevious(player, ticket);
+                            else closeMenu(playerId);
+                        }
+                        if (error != null) result.completeExceptionally(error);
+                        else result.completeExceptionally(new CancellationException("Player has left"));
+                        return;
+                    }
+                    if (owner != null) menu.stampOwner(owner);
+                    // the placeholder is not recorded, going back leads to the menu it has replaced
+                    openMenu(player, menu, placeholder == null, false);
+                    result.complete(menu);
+                }, () -> {
+                    pendingOpens.remove(playerId, ticket);
+                    result.completeExceptionally(new CancellationException("Player has left"));
+                });
+            } catch (RuntimeException e) {
+                // the plugin has been disabled in the meantime
+                pendingOpens.remove(playerId, ticket);
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Replaces the placeholder of a failed asynchronous open with the menu it has replaced, or closes it if there was none
+     */
+    private void restorePrevious(final @NotNull Player player, final @NotNull PendingOpen ticket) {
+        final Menu previous = ticket.previous;
+        if (previous != null && history.restore(player.getUniqueId(), previous)) openMenu(player, previous, false, true);
+        else closeMenu(player.getUniqueId(), player);
+    }
+
+    /**
+     * Reopens the menu the player has visited before the current one, as it was left
+     *
+     * @param player the player to navigate
+     * @return {@code true} if there was a menu to go back to
+     */
+    public boolean back(final @NotNull @NonNull Player player) {
+        final UUID playerId = player.getUniqueId();
+        final Menu target = history.back(playerId, openedMenus.get(playerId));
+        if (target == null) return false;
+        this.openMenu(player, target, false, true);
+        return true;
+    }
+
+    /**
+     * Reopens the menu the player has left with {@link #back(Player)}, as it was left
+     *
+     * @param player the player to navigate
+     * @return {@code true} if there was a menu to go forward to
+     */
+    public boolean forward(final @NotNull @NonNull Player player) {
+        final UUID playerId = player.getUniqueId();
+        final Menu target = history.forward(playerId, openedMenus.get(playerId));
+        if (target == null) return false;
+        this.openMenu(player, target, false, true);
+        return true;
+    }
+
+    /**
+     * @param playerId the id of the player to check
+     * @return {@code true} if {@link #back(Player)} has a menu to go to
+     */
+    public boolean canGoBack(final @NotNull @NonNull UUID playerId) {
+        return history.canGoBack(playerId);
+    }
+
+    /**
+     * @param playerId the id of the player to check
+     * @return {@code true} if {@link #forward(Player)} has a menu to go to
+     */
+    public boolean canGoForward(final @NotNull @NonNull UUID playerId) {
+        return history.canGoForward(playerId);
+    }
+
+    /**
+     * Bounds the menus kept in the navigation histories of all the players.
+     * When a bound is exceeded, the least recently visited menus are forgotten.
+     * Defaults are 256 menus and 16 MiB
+     *
+     * @param maxMenus the maximal amount of kept menus
+     * @param maxBytes the maximal {@link Menu#estimateRetainedSize() estimated size} of kept menus
+     * @throws IllegalStateException if the handler is shared
+     */
+    public void setHistoryLimits(final int maxMenus, final long maxBytes) {
+        checkNotShared();
+        history.setLimits(maxMenus, maxBytes);
+    }
+
+    /**
+     * Forgets the navigation history of the player
+     *
+     * @param playerId the id of the player
+     */
+    public void clearHistory(final @NotNull @NonNull UUID playerId) {
+        history.clear(playerId);
     }
 
     /**
@@ -46,17 +372,32 @@ public class MenuHandler {
     }
 
     /**
-     * Close the currently opened menu of the specified player
+     * Close the currently opened menu of the specified player.
+     * If called off the thread that owns the player, the menu is closed there later
      *
      * @param playerId the id of the player to close menu for
      */
     public void closeMenu(final @NotNull @NonNull UUID playerId) {
-        if (hasMenuClosed(playerId)) return;
+        this.closeMenu(playerId, Bukkit.getPlayer(playerId));
+    }
+
+    /**
+     * @param player the online player of the id, or {@code null} if they are offline
+     */
+    private void closeMenu(final @NotNull UUID playerId, final @Nullable Player player) {
+        if (player != null && scheduler != null && !scheduler.isOwnedByCurrentThread(player)) {
+            scheduler.execute(player, () -> closeMenu(playerId, player));
+            return;
+        }
+        pendingOpens.remove(playerId);
+        final Menu menu = openedMenus.remove(playerId);
+        if (menu == null) return;
 
-        openedMenus.remove(playerId);
-        Player player = Bukkit.getPlayer(playerId);
-        if (player == null) return;
-        player.closeInventory();
+        final boolean measured = MenuMetrics.global().isEnabled();
+        final long start = measured ? System.nanoTime() : 0;
+        menuClosed(playerId, menu);
+        if (player != null) player.closeInventory();
+        if (measured) MenuMetrics.global().recordClose(menu.getClass(), start);
     }
 
     /**
@@ -96,42 +437,460 @@ public class MenuHandler {
     }
 
     /**
-     * Closes all the opened menus
+     * Sets the limiter that every menu click has to pass before it is dispatched to the button.
+     * Rejected clicks are cancelled
+     *
+     * @param clickLimiter the limiter to use. If {@code null} then clicks are not limited
+     * @throws IllegalStateException if the handler is shared
+     */
+    public void setClickLimiter(final @Nullable ClickLimiter clickLimiter) {
+        checkNotShared();
+        this.clickLimiter = clickLimiter;
+    }
+
+    /**
+     * @return Maybe the limiter of menu clicks
+     */
+    public Optional<ClickLimiter> getClickLimiter() {
+        return Optional.ofNullable(clickLimiter);
+    }
+
+    /**
+     * Sets the executor that runs {@link AsyncClickHandler}s.
+     * By default, it is a virtual thread per task executor on Java 21+ and a bounded pool of daemon threads otherwise
+     *
+     * @param executor the executor to run async click handlers on
+     * @throws IllegalStateException if the handler was created without a plugin or is shared
+     */
+    public void setAsyncClickExecutor(final @NotNull @NonNull Executor executor) {
+        checkNotShared();
+        if (asyncClicks == null)
+            throw new IllegalStateException("Async clicks require MenuHandler created with a plugin");
+        asyncClicks.setExecutor(executor);
+    }
+
+    /**
+     * Sets the time after which results of {@link AsyncClickHandler}s are discarded and the handlers are interrupted,
+     * unless the handler sets its own timeout.
+     * Defaults to 5 seconds
+     *
+     * @param timeout the timeout of async click handlers
+     * @throws IllegalStateException if the handler was created without a plugin or is shared
+     */
+    public void setAsyncClickTimeout(final @NotNull @NonNull Duration timeout) {
+        checkNotShared();
+        if (asyncClicks == null)
+            throw new IllegalStateException("Async clicks require MenuHandler created with a plugin");
+        asyncClicks.setTimeout(timeout);
+    }
+
+    /**
+     * @param playerId the id of the player to check
+     * @return {@code true} if an {@link AsyncClickHandler} of the player is running
+     */
+    public boolean hasClickInFlight(final @NotNull @NonNull UUID playerId) {
+        return asyncClicks != null && asyncClicks.isInFlight(playerId);
+    }
+
+    /**
+     * @return Maybe the animator of the opened {@link AnimatedMenu}s. Present if the handler was created with a plugin
+     */
+    public Optional<MenuAnimator> getAnimator() {
+        return Optional.ofNullable(animator);
+    }
+
+    /**
+     * Closes all the opened menus. Every close is routed to the thread that owns the player,
+     * so on region-threaded servers they run in parallel
      */
     public void closeAll() {
-        openedMenus.keySet().forEach(this::closeMenu);
+        closeWhere(menu -> true);
+    }
+
+    /**
+     * Closes all the opened menus and stops the background work of the handler:
+     * the sweeper, the animator and the default executor of async clicks.
+     * Call it when the plugin of the handler disables. The handler must not be used afterwards
+     */
+    public synchronized void close() {
+        closeAll();
+        if (sweeper != null) {
+            sweeper.cancel();
+            sweeper = null;
+        }
+        if (animator != null) animator.stop();
+        if (asyncClicks != null) asyncClicks.shutdown();
+    }
+
+    /**
+     * Closes the opened menus that belong to the plugin and forgets them from the navigation histories.
+     * The asynchronous opens and async clicks of the plugin are cancelled
+     *
+     * @param owner the plugin to close menus of
+     * @see Menu#getOwner()
+     */
+    public void closeAll(final @NotNull @NonNull Plugin owner) {
+        pendingOpens.forEach((playerId, ticket) -> {
+            if (ticket.owner == owner && pendingOpens.remove(playerId, ticket))
+                ticket.result.completeExceptionally(new CancellationException("Plugin has been disabled"));
+        });
+        if (asyncClicks != null) asyncClicks.cancel(owner);
+        closeWhere(menu -> menu.getOwner() == owner);
+        history.removeIf(menu -> menu.getOwner() == owner);
+    }
+
+    /**
+     * Gives the plugin its own view of this handler, that stamps the menus it opens with the plugin
+     * and keeps the settings of the plugin
+     *
+     * @param plugin the plugin to get the view of
+     * @return the view of the plugin. The same instance is returned until the plugin disables
+     */
+    public @NotNull PluginMenuHandler forPlugin(final @NotNull @NonNull Plugin plugin) {
+        return views.computeIfAbsent(plugin, p -> new PluginMenuHandler(this, p));
+    }
+
+    /**
+     * Fixes the global settings of the handler, as it is shared by several plugins
+     */
+    @ApiStatus.Internal
+    public void share() {
+        shared = true;
+        if (animator != null) animator.share();
+    }
+
+    private void checkNotShared() {
+        if (shared)
+            throw new IllegalStateException("Settings of the shared MenuHandler can not be changed, use the PluginMenuHandler of your plugin");
     }
 
     /**
-     * @return Listeners for handling main menu events
+     * @return the view of the plugin that owns the menu, or {@code null} if it has none
+     */
+    private @Nullable PluginMenuHandler viewOf(final @NotNull Menu menu) {
+        if (views.isEmpty()) return null;
+        final Plugin owner = menu.getOwner();
+        return owner != null ? views.get(owner) : null;
+    }
+
+    private void closeWhere(final @NotNull Predicate<? super Menu> filter) {
+        if (openedMenus.isEmpty()) return;
+        final Map<UUID, Player> online = onlinePlayers();
+        openedMenus.forEach((playerId, menu) -> {
+            if (filter.test(menu)) closeMenu(playerId, online.get(playerId));
+        });
+    }
+
+    /**
+     * Sets how often the opened menus are reconciled with the inventories players actually have open
+     *
+     * @param period the period of the sweeps in ticks. If {@code 0} then menus are not swept in the background
+     * @throws IllegalStateException if the handler was created without a plugin or is shared
+     * @see #sweep()
      */
-    public Listener getListeners() {
+    public synchronized void setSweepPeriod(final long period) {
+        checkNotShared();
+        if (scheduler == null)
+            throw new IllegalStateException("Background sweeping requires MenuHandler created with a plugin");
+        if (period < 0) throw new IllegalArgumentException("Sweep period must not be negative");
+        if (sweeper != null) sweeper.cancel();
+        sweeper = period > 0 ? scheduler.runRepeating(this::sweep, period) : null;
+    }
+
+    /**
+     * Sets the time after which a menu without opens, clicks and changes is closed by the sweeper.
+     * Animated and other menus that are flushed with changes count as active. Disabled by default
+     *
+     * @param timeout the idle timeout. If {@code null} or zero then idle menus stay opened
+     * @throws IllegalStateException if the handler is shared
+     */
+    public void setIdleTimeout(final @Nullable Duration timeout) {
+        checkNotShared();
+        if (timeout != null && timeout.isNegative()) throw new IllegalArgumentException("Idle timeout must not be negative");
+        idleTimeoutNanos = timeout != null ? timeout.toNanos() : 0;
+    }
+
+    /**
+     * Reconciles the opened menus with the inventories players actually have open.
+     * Menus of offline players and menus their players no longer see are forgotten, as if they were closed,
+     * so menus do not leak when a close or quit event is missed. Menus idle longer than the idle timeout are closed,
+     * and the expired idle menus of the {@link MenuPool pools} of the opened menus are evicted.
+     * Checks of players owned by other threads are routed to those threads
+     *
+     * @see #setSweepPeriod(long)
+     * @see #setIdleTimeout(Duration)
+     */
+    public void sweep() {
+        final long now = System.nanoTime();
+        final long globalIdleTimeout = idleTimeoutNanos;
+        final Map<UUID, Player> online = onlinePlayers();
+        openedMenus.forEach((playerId, menu) -> {
+            final Player player = online.get(playerId);
+            final PluginMenuHandler view = viewOf(menu);
+            final long idleTimeout = view != null && view.idleTimeoutNanos() >= 0 ? view.idleTimeoutNanos() : globalIdleTimeout;
+            if (player != null && scheduler != null && !scheduler.isOwnedByCurrentThread(player))
+                scheduler.execute(player, () -> reconcile(playerId, menu, player, now, idleTimeout));
+            else reconcile(playerId, menu, player, now, idleTimeout);
+        });
+        for (final UUID playerId : history.getPlayerIds())
+            if (!online.containsKey(playerId)) history.clear(playerId);
+        synchronized (pools) {
+            pools.forEach(MenuPool::evictIdle);
+        }
+    }
+
+    private void reconcile(final @NotNull UUID playerId,
+                           final @NotNull Menu menu,
+                           final @Nullable Player player,
+                           final long now,
+                           final long idleTimeout) {
+        if (player == null || !player.isOnline()
+                || !menu.viewInventory(playerId).equals(player.getOpenInventory().getTopInventory())) {
+            if (!openedMenus.remove(playerId, menu)) return;
+            pendingOpens.remove(playerId);
+            menuClosed(playerId, menu);
+            orphanedMenus.incrementAndGet();
+            if (plugin != null)
+                plugin.getLogger().log(Level.FINE, "Evicted orphaned " + menu.getClass().getName() + " of " + playerId);
+        } else if (idleTimeout > 0 && now - menu.lastActivity > idleTimeout && openedMenus.get(playerId) == menu)
+            closeMenu(playerId, player);
+    }
+
+    /**
+     * @return the amount of menus the sweeper has found opened, but not shown to their players.
+     * Growth of it means that some plugin closes menus bypassing the events
+     */
+    public long getOrphanedCount() {
+        return orphanedMenus.get();
+    }
+
+    /**
+     * Estimates the heap retained by the menus of this handler: the opened ones and the ones kept in navigation histories.
+     * A menu viewed by several players is counted once
+     *
+     * @return the amount and the {@link Menu#estimateRetainedSize() estimated size} of the menus of every class
+     */
+    public @NotNull Map<Class<? extends Menu>, RetainedSize> getRetainedSizes() {
+        final Set<Menu> menus = Collections.newSetFromMap(new IdentityHashMap<>());
+        menus.addAll(openedMenus.values());
+        history.forEachMenu(menus::add);
+        final Map<Class<? extends Menu>, RetainedSize> sizes = new HashMap<>();
+        for (final Menu menu : menus) {
+            final RetainedSize size = sizes.computeIfAbsent(menu.getClass(), c -> new RetainedSize());
+            size.menus++;
+            size.bytes += menu.estimateRetainedSize();
+        }
+        return sizes;
+    }
+
+    private static @NotNull Map<UUID, Player> onlinePlayers() {
+        final Map<UUID, Player> online = new HashMap<>();
+        for (final Player player : Bukkit.getOnlinePlayers()) online.put(player.getUniqueId(), player);
+        return online;
+    }
+
+    private void menuClosed(final @NotNull UUID playerId, final @NotNull Menu menu) {
+        menu.onClose(playerId);
+        if (!menu.held) detachedViews.decrementAndGet();
+        if (animator != null) animator.release(menu, playerId);
+        synchronized (menu) {
+            if (--menu.viewers < 0) menu.viewers = 0;
+            releaseIfUnused(menu);
+        }
+    }
+
+    /**
+     * Releases the hold of a menu taken out of the navigation history
+     */
+    private void releaseHold(final @NotNull Menu menu) {
+        synchronized (menu) {
+            menu.holds--;
+            releaseIfUnused(menu);
+        }
+    }
+
+    /**
+     * Returns the menu to its pool once it is neither viewed nor kept in the navigation history.
+     * Must be called holding the monitor of the menu, that guards both counters
+     */
+    private void releaseIfUnused(final @NotNull Menu menu) {
+        if (menu.viewers == 0 && menu.holds == 0 && menu.pool != null) menu.pool.recycle(menu);
+    }
+
+    /**
+     * Runs the async handler on the current thread, as a handler created without a plugin has no threads to run it on
+     */
+    private void handleSynchronously(final @NotNull Menu menu,
+                                     final @NotNull AsyncClickHandler handler,
+                                     final @NotNull AsyncClick click,
+                                     final @NotNull Player player) {
+        final ClickResult result;
+        try {
+            result = handler.handle(click);
+        } catch (Exception e) {
+            Bukkit.getLogger().log(Level.WARNING, "Async click handler " + handler.getClass().getName() + " failed", e);
+            return;
+        }
+        if (result != null) result.apply(this, player, menu);
+    }
+
+    /**
+     * Finds the menu the player views through the inventory. Inventories that are not held by a menu
+     * are rejected by a single reference check, unless some menu without a holder is opened
+     *
+     * @return the menu opened by this handler, or {@code null} if the inventory is not a menu of the player
+     */
+    private @Nullable Menu findMenu(final @NotNull UUID playerId, final @NotNull Inventory top) {
+        final InventoryHolder holder = top.getHolder();
+        if (holder instanceof Menu) return openedMenus.get(playerId) == holder ? (Menu) holder : null;
+        if (detachedViews.get() == 0) return null;
+        final Menu menu = openedMenus.get(playerId);
+        return menu != null && menu.viewInventory(playerId).equals(top) ? menu : null;
+    }
+
+    /**
+     * @return Listeners for handling main menu events. The same instance is returned on every call
+     * @apiNote Clicks and drags that touch a menu are cancelled before the handler is called,
+     * as well as moving items into a menu from the player inventory.
+     * A handler may opt out with {@link ClickHandler#isCancellingClicks()} to get its clicks as they are.
+     * Clicks on empty slots and clicks rejected by the {@link ClickLimiter} are always cancelled.
+     * When a plugin disables, its menus are closed
+     */
+    public synchronized Listener getListeners() {
+        if (listener == null) listener = createListeners();
+        return listener;
+    }
+
+    private @NotNull Listener createListeners() {
         return new Listener() {
             @EventHandler
             public void onInventoryClick(InventoryClickEvent e) {
-                if (e.getClickedInventory() == null) return;
+                Inventory top = e.getView().getTopInventory();
+                UUID playerId = e.getWhoClicked().getUniqueId();
+                Menu menu = findMenu(playerId, top);
+                if (menu == null || e.getClickedInventory() == null) return;
 
-                Player player = (Player) e.getWhoClicked();
-                if (hasMenuClosed(player.getUniqueId())) return;
+                if (e.getRawSlot() >= top.getSize()) {
+                    // shift-clicks and double-clicks in the player inventory reach into the menu
+                    InventoryAction action = e.getAction();
+                    if (action == InventoryAction.MOVE_TO_OTHER_INVENTORY || action == InventoryAction.COLLECT_TO_CURSOR)
+                        e.setCancelled(true);
+                    return;
+                }
+                ClickHandler handler = menu.viewHandler(playerId, e.getSlot());
+                if (handler == null || handler.isCancellingClicks()) e.setCancelled(true);
+                PluginMenuHandler view = viewOf(menu);
+                ClickLimiter limiter = view != null ? view.clickLimiter() : null;
+                if (limiter == null) limiter = clickLimiter;
+                if (limiter != null && !limiter.tryAcquire(playerId, e.getSlot(), e.getClick(), handler)) {
+                    e.setCancelled(true);
+                    return;
+                }
+                menu.lastActivity = System.nanoTime();
+                boolean measured = MenuMetrics.global().isEnabled();
+                long start = measured ? System.nanoTime() : 0;
+                if (handler instanceof AsyncClickHandler) {
+                    AsyncClick click = new AsyncClick(menu, playerId, e.getSlot(), e.getClick());
+                    if (asyncClicks != null) asyncClicks.dispatch(menu, (AsyncClickHandler) handler, click, (Player) e.getWhoClicked());
+                    else handleSynchronously(menu, (AsyncClickHandler) handler, click, (Player) e.getWhoClicked());
+                } else menu.performClick(e);
+                if (measured) MenuMetrics.global().recordClick(menu.getClass(), start);
+            }
 
-                Menu menu = openedMenus.get(player.getUniqueId());
-                if (e.getClickedInventory().equals(e.getView().getTopInventory())) menu.performClick(e);
+            @EventHandler
+            public void onInventoryDrag(InventoryDragEvent e) {
+                Inventory top = e.getView().getTopInventory();
+                if (findMenu(e.getWhoClicked().getUniqueId(), top) == null) return;
+                for (int rawSlot : e.getRawSlots())
+                    if (rawSlot < top.getSize()) {
+                        e.setCancelled(true);
+                        return;
+                    }
             }
 
             @EventHandler
             public void onInventoryClose(InventoryCloseEvent e) {
-                closeMenu(e.getPlayer().getUniqueId());
+                if (!(e.getInventory().getHolder() instanceof Menu) && detachedViews.get() == 0) return;
+                UUID playerId = e.getPlayer().getUniqueId();
+                Menu menu = openedMenus.get(playerId);
+                // the inventory may be closed because another menu replaces it
+                if (menu == null || !menu.viewInventory(playerId).equals(e.getInventory())) return;
+                if (openedMenus.remove(playerId, menu)) {
+                    boolean measured = MenuMetrics.global().isEnabled();
+                    long start = measured ? System.nanoTime() : 0;
+                    pendingOpens.remove(playerId);
+                    menuClosed(playerId, menu);
+                    if (measured) MenuMetrics.global().recordClose(menu.getClass(), start);
+                }
             }
 
             @EventHandler
             public void onPlayerLeave(PlayerQuitEvent e) {
                 closeMenu(e.getPlayer().getUniqueId());
+                history.clear(e.getPlayer().getUniqueId());
+                ClickLimiter limiter = clickLimiter;
+                if (limiter != null) limiter.reset(e.getPlayer().getUniqueId());
+                for (PluginMenuHandler view : views.values()) {
+                    limiter = view.clickLimiter();
+                    if (limiter != null) limiter.reset(e.getPlayer().getUniqueId());
+                }
             }
 
             @EventHandler
             public void onPlayerDeath(PlayerDeathEvent e) {
                 closeMenu(e.getEntity().getUniqueId());
             }
+
+            @EventHandler
+            public void onPluginDisable(PluginDisableEvent e) {
+                if (e.getPlugin() == plugin) close();
+                else {
+                    closeAll(e.getPlugin());
+                    views.remove(e.getPlugin());
+                }
+            }
         };
     }
-}
\ No newline at end of file
+
+    /**
+     * Ticket of an asynchronous open in flight
+     */
+    private static final class PendingOpen {
+        private final @Nullable Plugin owner;
+        private final CompletableFuture<?> result;
+        /**
+         * The menu the placeholder has replaced
+         */
+        private volatile @Nullable Menu previous;
+
+        private PendingOpen(final @Nullable Plugin owner, final @NotNull CompletableFuture<?> result) {
+            this.owner = owner;
+            this.result = result;
+        }
+    }
+
+    /**
+     * Estimated heap retained by the menus of a single class
+     */
+    public static final class RetainedSize {
+        private int menus;
+        private long bytes;
+
+        private RetainedSize() {
+        }
+
+        /**
+         * @return the amount of the menus
+         */
+        public int getMenus() {
+            return this.menus;
+        }
+
+        /**
+         * @return the estimated size of the menus in bytes
+         */
+        public long getBytes() {
+            return this.bytes;
+        }
+    }
+}
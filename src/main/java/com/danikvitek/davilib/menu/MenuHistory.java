@@ -0,0 +1,217 @@
+package com.danikvitek.davilib.menu;
+
+import lombok.NonNull;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Per-player back and forward stacks of visited menus, used by {@link MenuHandler#back} and {@link MenuHandler#forward}.
+ * <p>
+ * The visited menus are kept as they are, so going back reuses them without rebuilding.
+ * All the kept menus form one LRU cache, that is bounded by the amount of menus and by their
+ * {@link Menu#estimateRetainedSize() estimated size}. The least recently visited menus are evicted first
+ */
+final class MenuHistory {
+    private final Map<UUID, Stacks> stacks = new HashMap<>();
+    private final LinkedHashMap<Entry, Entry> lru = new LinkedHashMap<>(16, 0.75f, true);
+    private final Consumer<Menu> onRelease;
+    private int maxMenus = 256;
+    private long maxBytes = 16L << 20;
+    private long totalBytes;
+
+    /**
+     * @param onRelease called with a menu that is no longer kept by the history
+     */
+    MenuHistory(final @NotNull @NonNull Consumer<Menu> onRelease) {
+        this.onRelease = onRelease;
+    }
+
+    synchronized void setLimits(final int maxMenus, final long maxBytes) {
+        if (maxMenus < 0 || maxBytes < 0) throw new IllegalArgumentException("Limits must not be negative");
+        this.maxMenus = maxMenus;
+        this.maxBytes = maxBytes;
+        this.trim();
+    }
+
+    synchronized int getMenuCount() {
+        return this.lru.size();
+    }
+
+    synchronized long getEstimatedBytes() {
+        return this.totalBytes;
+    }
+
+    /**
+     * Records that the player has left the menu for a new one. Clears the forward stack
+     */
+    synchronized void visit(final @NotNull UUID playerId, final @NotNull Menu left) {
+        final Stacks stacks = this.stacks.computeIfAbsent(playerId, id -> new Stacks());
+        while (!stacks.forward.isEmpty()) this.drop(stacks.forward.pollLast());
+        this.push(stacks.back, left);
+    }
+
+    /**
+     * @return the menu to go back to, or {@code null} if there is none. The caller has to open it and release its hold
+     */
+    synchronized @Nullable Menu back(final @NotNull UUID playerId, final @Nullable Menu current) {
+        final Stacks stacks = this.stacks.get(playerId);
+        if (stacks == null || stacks.back.isEmpty()) return null;
+        final Entry target = stacks.back.pollLast();
+        this.forget(target);
+        if (current != null) this.push(stacks.forward, current);
+        return target.menu;
+    }
+
+    /**
+     * @return the menu to go forward to, or {@code null} if there is none. The caller has to open it and release its hold
+     */
+    synchronized @Nullable Menu forward(final @NotNull UUID playerId, final @Nullable Menu current) {
+        final Stacks stacks = this.stacks.get(playerId);
+        if (stacks == null || stacks.forward.isEmpty()) return null;
+        final Entry target = stacks.forward.pollLast();
+        this.forget(target);
+        if (current != null) this.push(stacks.back, current);
+        return target.menu;
+    }
+
+    /**
+     * Takes the menu out of the back stack, if it is the last one visited, without recording the current menu
+     *
+     * @return {@code true} if the menu was taken. The caller has to open it and release its hold
+     */
+    synchronized boolean restore(final @NotNull UUID playerId, final @NotNull Menu menu) {
+        final Stacks stacks = this.stacks.get(playerId);
+        if (stacks == null || stacks.back.isEmpty() || stacks.back.peekLast().menu != menu) return false;
+        this.forget(stacks.back.pollLast());
+        return true;
+    }
+
+    synchronized boolean canGoBack(final @NotNull UUID playerId) {
+        final Stacks stacks = this.stacks.get(playerId);
+        return stacks != null && !stacks.back.isEmpty();
+    }
+
+    synchronized boolean canGoForward(final @NotNull UUID playerId) {
+        final Stacks stacks = this.stacks.get(playerId);
+        return stacks != null && !stacks.forward.isEmpty();
+    }
+
+    /**
+     * Forgets the whole history of the player
+     */
+    synchronized void clear(final @NotNull UUID playerId) {
+        final Stacks stacks = this.stacks.remove(playerId);
+        if (stacks == null) return;
+        for (final Entry entry : stacks.back) this.drop(entry);
+        for (final Entry entry : stacks.forward) this.drop(entry);
+    }
+
+    /**
+     * Forgets the matching menus from the histories of all the players
+     */
+    synchronized void removeIf(final @NotNull Predicate<? super Menu> filter) {
+        final Predicate<Entry> dropped = entry -> {
+            if (!filter.test(entry.menu)) return false;
+            this.drop(entry);
+            return true;
+        };
+        for (final Stacks stacks : this.stacks.values()) {
+            stacks.back.removeIf(dropped);
+            stacks.forward.removeIf(dropped);
+        }
+    }
+
+    /**
+     * @return the ids of the players that have a history
+     */
+    synchronized @NotNull Set<UUID> getPlayerIds() {
+        return new HashSet<>(this.stacks.keySet());
+    }
+
+    /**
+     * Calls the action with every kept menu, once per visit
+     */
+    synchronized void forEachMenu(final @NotNull Consumer<? super Menu> action) {
+        for (final Entry entry : this.lru.keySet()) action.accept(entry.menu);
+    }
+
+    private void push(final @NotNull ArrayDeque<Entry> stack, final @NotNull Menu menu) {
+        final Entry entry = new Entry(stack, menu, menu.estimateRetainedSize());
+        synchronized (menu) {
+            menu.holds++;
+        }
+        stack.addLast(entry);
+        this.lru.put(entry, entry);
+        this.totalBytes += entry.bytes;
+        this.trim();
+    }
+
+    private void trim() {
+        final Iterator<Entry> eldest = this.lru.keySet().iterator();
+        while ((this.lru.size() > this.maxMenus || this.totalBytes > this.maxBytes) && eldest.hasNext()) {
+            final Entry entry = eldest.next();
+            eldest.remove();
+            this.totalBytes -= entry.bytes;
+            entry.stack.remove(entry);
+            this.release(entry.menu);
+        }
+    }
+
+    /**
+     * Removes the entry that is taken out of its stack to be opened. The menu stays held,
+     * the caller releases the hold once the menu is opened, so it can not be recycled in between
+     */
+    private void forget(final @NotNull Entry entry) {
+        this.lru.remove(entry);
+        this.totalBytes -= entry.bytes;
+    }
+
+    private void drop(final @NotNull Entry entry) {
+        if (this.lru.remove(entry) == null) return;
+        this.totalBytes -= entry.bytes;
+        this.release(entry.menu);
+    }
+
+    private void release(final @NotNull Menu menu) {
+        synchronized (menu) {
+            menu.holds--;
+            this.onRelease.accept(menu);
+        }
+    }
+
+    /**
+     * Back and forward stacks of a single player. The most recent menus are at the tail
+     */
+    private static final class Stacks {
+        private final ArrayDeque<Entry> back = new ArrayDeque<>();
+        private final ArrayDeque<Entry> forward = new ArrayDeque<>();
+    }
+
+    /**
+     * Single visit of a menu. Compared by identity
+     */
+    private static final class Entry {
+        private final ArrayDeque<Entry> stack;
+        private final Menu menu;
+        private final long bytes;
+
+        private Entry(final @NotNull ArrayDeque<Entry> stack,
+                      final @NotNull Menu menu,
+                      final long bytes) {
+            this.stack = stack;
+            this.menu = menu;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.danikvitek.davilib.menu;
+
+import lombok.Getter;
+import lombok.NonNull;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Immutable compiled layout of a chest menu: its title, amount of rows and precomputed slots
+ *
+ * @see MenuLayouts
+ * @see LayoutMenu
+ */
+@Getter
+public final class MenuLayout {
+    /**
+     * Name of the layout. It is the name of its file without the extension
+     */
+    private final @NotNull String id;
+    private final @Nullable String title;
+    private final int rows;
+    private final @NotNull SlotTemplate template;
+
+    /**
+     * @param id       name of the layout
+     * @param title    the title of the menu. If {@code null} then no title will be set
+     * @param rows     amount of rows in the menu, from 1 to 6
+     * @param template buttons of the menu. It must have {@code rows * 9} slots
+     */
+    public MenuLayout(final @NotNull @NonNull String id,
+                      final @Nullable String title,
+                      final int rows,
+                      final @NotNull @NonNull SlotTemplate template) {
+        if (rows < 1 || rows > 6) throw new IllegalArgumentException("Rows count must be from 1 to 6");
+        if (template.getSize() != rows * 9)
+            throw new IllegalArgumentException(String.format(
+                    "Template of size %d does not fit %d rows", template.getSize(), rows));
+        this.id = id;
+        this.title = title;
+        this.rows = rows;
+        this.template = template;
+    }
+
+    /**
+     * Fabric method
+     *
+     * @return new menu filled with the buttons of this layout
+     */
+    public @NotNull LayoutMenu createMenu() {
+        return new LayoutMenu(this);
+    }
+}
@@ -0,0 +1,452 @@
+package com.danikvitek.davilib.menu;
+
+import com.danikvitek.davilib.builder.ItemBuilder;
+import com.danikvitek.davilib.builder.ItemSnapshotCache;
+import lombok.NonNull;
+import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.Material;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Registry of the menu layouts declared in YAML files. Every {@code <id>.yml} file of the directory is compiled
+ * once into a {@link MenuLayout}, so creating a menu from it only copies the precomputed slot arrays.
+ * <p>
+ * Layout file format:
+ * <pre>{@code
+ * title: "&6Shop"          # optional, '&' color codes are translated
+ * rows: 3
+ * slots:
+ *   "0-8":                 # a slot, a range "a-b" or a list "a,b,c"
+ *     material: GRAY_STAINED_GLASS_PANE
+ *     name: " "
+ *   "13":
+ *     material: DIAMOND
+ *     amount: 1
+ *     name: "&bDiamonds"
+ *     lore: ["&7Click to buy"]
+ *     custom-model-data: 7
+ *     action: shop-buy     # name of an action registered with registerAction
+ * }</pre>
+ * Reloading parses the files off the main thread and swaps all the layouts at once.
+ * A file that fails to compile keeps its previously loaded layout.
+ * <p>
+ * Compiled layouts are kept in an {@link ItemSnapshotCache} keyed by the content of their files.
+ * A layout whose file did not change since the snapshot was saved is not compiled on reload:
+ * its title, rows and actions are read from the snapshot and bound right away,
+ * while its items are deserialized from the snapshot on its first use, running the full {@code ItemMeta} deserialization
+ */
+public final class MenuLayouts {
+    private static final String LAYOUT_KEY = "layout:";
+    private static final String ITEMS_KEY = "layout-items:";
+
+    private final File directory;
+    private final Logger logger;
+    private final @Nullable Plugin owner;
+    private final ConcurrentMap<String, ClickHandler> actions = new ConcurrentHashMap<>();
+    private final AtomicReference<Map<String, Loaded>> layouts = new AtomicReference<>(Collections.emptyMap());
+    private volatile @Nullable ItemSnapshotCache snapshot;
+
+    /**
+     * @param plugin the plugin, which {@code menus} subdirectory of the data folder holds the layouts.
+     *               Compiled layouts are snapshotted to {@code menus.snapshot} in the data folder
+     */
+    public MenuLayouts(final @NotNull @NonNull Plugin plugin) {
+        this.directory = new File(plugin.getDataFolder(), "menus");
+        this.logger = plugin.getLogger();
+        this.owner = plugin;
+        this.snapshot = new ItemSnapshotCache(new File(plugin.getDataFolder(), "menus.snapshot"), Bukkit.getBukkitVersion());
+    }
+
+    /**
+     * @param directory the directory that holds the layouts
+     * @param logger    the logger to report broken layouts to
+     */
+    public MenuLayouts(final @NotNull @NonNull File directory, final @NotNull @NonNull Logger logger) {
+        this.directory = directory;
+        this.logger = logger;
+        this.owner = null;
+    }
+
+    /**
+     * Takes effect on the next reload
+     *
+     * @param snapshot the cache of compiled layouts. If {@code null} then every layout is compiled on every reload
+     * @return this MenuLayouts. Fluent API
+     */
+    public MenuLayouts setSnapshotCache(final @Nullable ItemSnapshotCache snapshot) {
+        this.snapshot = snapshot;
+        return this;
+    }
+
+    /**
+     * @return Maybe the cache of compiled layouts
+     */
+    public Optional<ItemSnapshotCache> getSnapshotCache() {
+        return Optional.ofNullable(this.snapshot);
+    }
+
+    /**
+     * Registers the click handler that layouts refer to by name.
+     * Layouts are bound to the handlers on reload, so register actions before reloading.
+     * A layout that refers to an unknown action fails to load
+     *
+     * @param name    name of the action in the layout files
+     * @param handler the handler of the action
+     * @return this MenuLayouts. Fluent API
+     */
+    public MenuLayouts registerAction(final @NotNull @NonNull String name, final @NotNull @NonNull ClickHandler handler) {
+        this.actions.put(name, handler);
+        return this;
+    }
+
+    /**
+     * @param name name of the action in the layout files
+     * @return this MenuLayouts. Fluent API
+     */
+    public MenuLayouts unregisterAction(final @NotNull @NonNull String name) {
+        this.actions.remove(name);
+        return this;
+    }
+
+    /**
+     * @param id name of the layout file without the extension
+     * @return Maybe the loaded layout
+     */
+    public Optional<MenuLayout> getLayout(final @NotNull @NonNull String id) {
+        final Loaded loaded = this.layouts.get().get(id);
+        return loaded != null ? Optional.ofNullable(loaded.get()) : Optional.empty();
+    }
+
+    /**
+     * @return names of all the loaded layouts
+     */
+    public @NotNull Set<String> getLayoutIds() {
+        return Collections.unmodifiableSet(this.layouts.get().keySet());
+    }
+
+    /**
+     * @param id name of the layout file without the extension
+     * @return Maybe a new menu of the loaded layout, owned by the plugin of these layouts
+     */
+    public Optional<LayoutMenu> createMenu(final @NotNull @NonNull String id) {
+        return this.getLayout(id).map(layout -> {
+            final LayoutMenu menu = layout.createMenu();
+            if (this.owner != null) menu.setOwner(this.owner);
+            return menu;
+        });
+    }
+
+    /**
+     * Reloads the layouts on the common pool
+     *
+     * @return the future that completes once the new layouts are swapped in
+     * @see #reload(Executor)
+     */
+    public @NotNull CompletableFuture<Void> reload() {
+        return this.reload(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Reads and compiles all the layout files on the executor, then swaps them in at once.
+     * Items of unchanged files are left in the snapshot until their first use,
+     * the newly compiled layouts are saved to it and the ones of deleted files are dropped from it.
+     * Menus created before keep their buttons
+     *
+     * @param executor the executor to parse files with
+     * @return the future that completes once the new layouts are swapped in
+     */
+    public @NotNull CompletableFuture<Void> reload(final @NotNull @NonNull Executor executor) {
+        return CompletableFuture.runAsync(() -> {
+            final ItemSnapshotCache snapshot = this.snapshot;
+            if (snapshot != null) try {
+                snapshot.load();
+            } catch (IOException e) {
+                this.logger.log(Level.WARNING, "Could not load menu layouts snapshot", e);
+            }
+
+            final Map<String, Loaded> loaded = new HashMap<>();
+            final Set<String> failed = new HashSet<>();
+            final Set<String> present = new HashSet<>();
+            final File[] files = this.directory.listFiles((dir, name) -> name.endsWith(".yml"));
+            if (files != null) for (final File file : files) {
+                final String id = file.getName().substring(0, file.getName().length() - ".yml".length());
+                present.add(id);
+                try {
+                    final String content = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+                    loaded.put(id, snapshot != null ? this.load(snapshot, id, content) : new Loaded(this.compile(id, parse(content))));
+                } catch (IOException | RuntimeException e) {
+                    failed.add(id);
+                    this.logger.log(Level.WARNING, "Could not compile menu layout " + file.getName(), e);
+                }
+            }
+            this.layouts.updateAndGet(previous -> {
+                final Map<String, Loaded> next = new HashMap<>(loaded);
+                for (final String id : failed) {
+                    final Loaded kept = previous.get(id);
+                    if (kept != null) next.put(id, kept);
+                }
+                return Collections.unmodifiableMap(next);
+            });
+
+            if (snapshot != null) try {
+                snapshot.removeIf(key -> key.startsWith(LAYOUT_KEY) && !present.contains(key.substring(LAYOUT_KEY.length()))
+                        || key.startsWith(ITEMS_KEY) && !present.contains(key.substring(ITEMS_KEY.length())));
+                snapshot.save();
+            } catch (IOException e) {
+                this.logger.log(Level.WARNING, "Could not save menu layouts snapshot", e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Binds the layout of an unchanged file from the snapshot, leaving its items there until the first use.
+     * Compiles the layout of a changed file and puts it into the snapshot
+     *
+     * @throws IllegalArgumentException if the layout is malformed or refers to an unknown action
+     */
+    private @NotNull Loaded load(final @NotNull ItemSnapshotCache snapshot, final @NotNull String id, final @NotNull String content) {
+        final long hash = ItemSnapshotCache.hash(content);
+        final String layoutKey = LAYOUT_KEY + id;
+        final String itemsKey = ITEMS_KEY + id;
+        if (snapshot.contains(layoutKey, hash) && snapshot.contains(itemsKey, hash)) {
+            final Object[] header = snapshot.get(layoutKey, hash, Object[].class, () -> header(this.compileData(parse(content))));
+            if (header.length != 3 || header[0] != null && !(header[0] instanceof String)
+                    || !(header[1] instanceof Integer) || !(header[2] instanceof String[]))
+                throw new IllegalArgumentException("Malformed layout data of " + id);
+            final int rows = (Integer) header[1];
+            final ClickHandler[] handlers = this.bindActions(rows, (String[]) header[2]);
+            return new Loaded(id, (String) header[0], rows, handlers,
+                    () -> snapshot.get(itemsKey, hash, Object[].class, () -> (Object[]) this.compileData(parse(content))[2]));
+        }
+        final Object[] data = this.compileData(parse(content));
+        final Loaded compiled = new Loaded(this.bind(id, data));
+        snapshot.get(layoutKey, hash, Object[].class, () -> header(data));
+        snapshot.get(itemsKey, hash, Object[].class, () -> (Object[]) data[2]);
+        return compiled;
+    }
+
+    /**
+     * @param data the serializable form of the layout
+     * @return the serializable form of the layout without its items: its title, amount of rows and action names per slot
+     */
+    private static @NotNull Object @NotNull [] header(final @NotNull Object @NotNull [] data) {
+        return new Object[]{data[0], data[1], data[3]};
+    }
+
+    /**
+     * @param id     name of the layout
+     * @param config parsed layout file
+     * @return the compiled layout
+     * @throws IllegalArgumentException if the layout is malformed
+     */
+    @NotNull MenuLayout compile(final @NotNull String id, final @NotNull ConfigurationSection config) {
+        return this.bind(id, this.compileData(config));
+    }
+
+    /**
+     * @param config parsed layout file
+     * @return the serializable form of the layout: its title, amount of rows, items and action names per slot
+     * @throws IllegalArgumentException if the layout is malformed
+     */
+    private @NotNull Object @NotNull [] compileData(final @NotNull ConfigurationSection config) {
+        final String title = config.getString("title");
+        final int rows = config.getInt("rows", 3);
+        if (rows < 1 || rows > 6) throw new IllegalArgumentException("Rows count must be from 1 to 6");
+
+        final int size = rows * 9;
+        final Object[] items = new Object[size];
+        final String[] actions = new String[size];
+        final ConfigurationSection slots = config.getConfigurationSection("slots");
+        if (slots != null) for (final String key : slots.getKeys(false)) {
+            final ConfigurationSection slot = slots.getConfigurationSection(key);
+            if (slot == null) throw new IllegalArgumentException("Slot " + key + " is not a section");
+
+            final ItemStack item = compileItem(key, slot);
+            final String action = slot.getString("action");
+            for (final int index : parseSlots(key, size)) {
+                items[index] = item;
+                actions[index] = action;
+            }
+        }
+        return new Object[]{title != null ? color(title) : null, rows, items, actions};
+    }
+
+    /**
+     * @param id   name of the layout
+     * @param data the serializable form of the layout
+     * @return the layout bound to the registered actions
+     * @throws IllegalArgumentException if the data is malformed or refers to an unknown action
+     */
+    private @NotNull MenuLayout bind(final @NotNull String id, final @NotNull Object @NotNull [] data) {
+        if (data.length != 4 || !(data[1] instanceof Integer) || !(data[2] instanceof Object[]) || !(data[3] instanceof String[]))
+            throw new IllegalArgumentException("Malformed layout data of " + id);
+        final int rows = (Integer) data[1];
+        return new MenuLayout(id, (String) data[0], rows,
+                new SlotTemplate(internItems(id, rows, (Object[]) data[2]), this.bindActions(rows, (String[]) data[3])));
+    }
+
+    /**
+     * @param rows    amount of rows of the layout
+     * @param actions action names per slot
+     * @return the registered handlers per slot
+     * @throws IllegalArgumentException if the names are malformed or refer to an unknown action
+     */
+    private @Nullable ClickHandler @NotNull [] bindActions(final int rows, final @Nullable String @NotNull [] actions) {
+        if (actions.length != rows * 9) throw new IllegalArgumentException("Malformed actions of the layout");
+        final ClickHandler[] handlers = new ClickHandler[actions.length];
+        for (int slot = 0; slot < actions.length; slot++) {
+            final String action = actions[slot];
+            if (action == null) continue;
+            handlers[slot] = this.actions.get(action);
+            if (handlers[slot] == null)
+                throw new IllegalArgumentException("Unknown action " + action + " in slot " + slot);
+        }
+        return handlers;
+    }
+
+    /**
+     * @param id            name of the layout
+     * @param rows          amount of rows of the layout
+     * @param compiledItems items per slot
+     * @return the interned items per slot
+     * @throws IllegalArgumentException if the items are malformed
+     */
+    private static @Nullable ItemStack @NotNull [] internItems(final @NotNull String id,
+                                                               final int rows,
+                                                               final @Nullable Object @NotNull [] compiledItems) {
+        if (compiledItems.length != rows * 9) throw new IllegalArgumentException("Malformed layout data of " + id);
+        final ItemStack[] items = new ItemStack[compiledItems.length];
+        for (int slot = 0; slot < items.length; slot++) {
+            if (compiledItems[slot] == null) continue;
+            if (!(compiledItems[slot] instanceof ItemStack))
+                throw new IllegalArgumentException("Malformed layout data of " + id);
+            items[slot] = Icon.of((ItemStack) compiledItems[slot]).item();
+        }
+        return items;
+    }
+
+    private static @NotNull ConfigurationSection parse(final @NotNull String content) {
+        return YamlConfiguration.loadConfiguration(new StringReader(content));
+    }
+
+    private static @NotNull ItemStack compileItem(final @NotNull String key, final @NotNull ConfigurationSection slot) {
+        final String materialName = slot.getString("material");
+        final Material material = materialName != null ? Material.matchMaterial(materialName) : null;
+        if (material == null || material.isAir())
+            throw new IllegalArgumentException("Illegal material " + materialName + " in slot " + key);
+
+        final ItemBuilder builder = new ItemBuilder(material, slot.getInt("amount", 1));
+        final String name = slot.getString("name");
+        if (name != null) builder.setDisplayName(color(name));
+        if (slot.isList("lore"))
+            builder.setLore(slot.getStringList("lore").stream().map(MenuLayouts::color).collect(Collectors.toList()));
+        if (slot.isInt("custom-model-data")) builder.setCustomModelData(slot.getInt("custom-model-data"));
+        return builder.build();
+    }
+
+    /**
+     * @param key  slot key: a slot, a range {@code a-b} or a list {@code a,b,c} of them
+     * @param size amount of slots in the menu
+     * @return the slots the key refers to
+     */
+    private static int @NotNull [] parseSlots(final @NotNull String key, final int size) {
+        try {
+            return Arrays.stream(key.split(","))
+                    .map(String::trim)
+                    .flatMapToInt(part -> {
+                        final int dash = part.indexOf('-', 1);
+                        final int from = Integer.parseInt(dash < 0 ? part : part.substring(0, dash).trim());
+                        final int to = dash < 0 ? from : Integer.parseInt(part.substring(dash + 1).trim());
+                        if (from < 0 || to >= size || from > to)
+                            throw new IllegalArgumentException("Illegal slots " + part + " for the menu of size " + size);
+                        return IntStream.rangeClosed(from, to);
+                    })
+                    .toArray();
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Illegal slot key " + key, e);
+        }
+    }
+
+    private static @NotNull String color(final @NotNull String text) {
+        return ChatColor.translateAlternateColorCodes('&', text);
+    }
+
+    /**
+     * Layout that is either compiled or bound, with its items still lying in the snapshot
+     */
+    private final class Loaded {
+        private final @Nullable String id;
+        private final @Nullable String title;
+        private final int rows;
+        private final @Nullable ClickHandler @Nullable [] handlers;
+        private @Nullable Supplier<Object[]> items;
+        private volatile @Nullable MenuLayout layout;
+
+        private Loaded(final @NotNull MenuLayout layout) {
+            this(null, null, 0, null, null);
+            this.layout = layout;
+        }
+
+        private Loaded(final @Nullable String id,
+                       final @Nullable String title,
+                       final int rows,
+                       final @Nullable ClickHandler @Nullable [] handlers,
+                       final @Nullable Supplier<Object[]> items) {
+            this.id = id;
+            this.title = title;
+            this.rows = rows;
+            this.handlers = handlers;
+            this.items = items;
+        }
+
+        /**
+         * @return the layout, its items restored on the first call. {@code null} if they failed to restore,
+         * then they are restored again on the next call
+         */
+        private @Nullable MenuLayout get() {
+            final MenuLayout layout = this.layout;
+            if (layout != null) return layout;
+            synchronized (this) {
+                if (this.layout == null && this.items != null) try {
+                    this.layout = new MenuLayout(Objects.requireNonNull(this.id), this.title, this.rows, new SlotTemplate(
+                            internItems(this.id, this.rows, this.items.get()), Objects.requireNonNull(this.handlers)));
+                    this.items = null;
+                } catch (RuntimeException e) {
+                    MenuLayouts.this.logger.log(Level.WARNING, "Could not restore menu layout " + this.id, e);
+                }
+                return this.layout;
+            }
+        }
+    }
+}
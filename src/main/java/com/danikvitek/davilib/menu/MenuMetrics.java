@@ -0,0 +1,136 @@
+package com.danikvitek.davilib.menu;
+
+import lombok.NonNull;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Unmodifiable;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Counters and latency histograms of menu opens, click dispatches and closes, tagged by menu class,
+ * and of click handler executions, tagged by handler class ({@link Button} subclass or {@link ClickHandler} implementation).
+ * Classes are referred to by name, so the metrics do not keep the classes of disabled plugins loaded
+ * <p>
+ * Metrics are recorded by {@link MenuHandler} and {@link Menu} into the {@link #global()} instance.
+ * Recording does not allocate after the first event of a class, so the metrics may stay enabled in production
+ *
+ * @apiNote Dump them in game with {@code /davilib metrics}
+ */
+public final class MenuMetrics {
+    private static final MenuMetrics GLOBAL = new MenuMetrics();
+
+    private final ConcurrentMap<String, MenuStats> menus = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LatencyHistogram> handlers = new ConcurrentHashMap<>();
+    private volatile boolean enabled = true;
+
+    private MenuMetrics() {
+    }
+
+    /**
+     * @return the metrics of all the menus on the server
+     */
+    public static @NotNull MenuMetrics global() {
+        return GLOBAL;
+    }
+
+    /**
+     * @param enabled whether to record the metrics
+     */
+    public void setEnabled(final boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return {@code true} if the metrics are recorded
+     */
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    /**
+     * @return the metrics of every menu class that has been used, by class name
+     */
+    public @NotNull @Unmodifiable Map<String, MenuStats> getMenuStats() {
+        return Collections.unmodifiableMap(this.menus);
+    }
+
+    /**
+     * @return the handler execution latencies of every handler class that has been clicked, by class name
+     */
+    public @NotNull @Unmodifiable Map<String, LatencyHistogram> getHandlerStats() {
+        return Collections.unmodifiableMap(this.handlers);
+    }
+
+    /**
+     * Forgets all the recorded metrics
+     */
+    public void reset() {
+        this.menus.clear();
+        this.handlers.clear();
+    }
+
+    /*
+     * Callers check isEnabled() before taking the start time and pass the result along,
+     * instead of encoding "disabled" in the start time itself
+     */
+
+    void recordOpen(final @NotNull Class<?> menuClass, final long start) {
+        this.menuStats(menuClass).opens.record(System.nanoTime() - start);
+    }
+
+    void recordClick(final @NotNull Class<?> menuClass, final long start) {
+        this.menuStats(menuClass).clicks.record(System.nanoTime() - start);
+    }
+
+    void recordClose(final @NotNull Class<?> menuClass, final long start) {
+        this.menuStats(menuClass).closes.record(System.nanoTime() - start);
+    }
+
+    void recordHandler(final @NotNull Class<?> buttonClass, final long start) {
+        final long nanos = System.nanoTime() - start;
+        LatencyHistogram histogram = this.handlers.get(buttonClass.getName());
+        if (histogram == null) histogram = this.handlers.computeIfAbsent(buttonClass.getName(), c -> new LatencyHistogram());
+        histogram.record(nanos);
+    }
+
+    private @NotNull MenuStats menuStats(final @NotNull @NonNull Class<?> menuClass) {
+        final MenuStats stats = this.menus.get(menuClass.getName());
+        return stats != null ? stats : this.menus.computeIfAbsent(menuClass.getName(), c -> new MenuStats());
+    }
+
+    /**
+     * Metrics of a single menu class
+     */
+    public static final class MenuStats {
+        private final LatencyHistogram opens = new LatencyHistogram();
+        private final LatencyHistogram clicks = new LatencyHistogram();
+        private final LatencyHistogram closes = new LatencyHistogram();
+
+        private MenuStats() {
+        }
+
+        /**
+         * @return latencies of opening the menu
+         */
+        public @NotNull LatencyHistogram getOpens() {
+            return this.opens;
+        }
+
+        /**
+         * @return latencies of dispatching clicks in the menu, including the button handlers
+         */
+        public @NotNull LatencyHistogram getClicks() {
+            return this.clicks;
+        }
+
+        /**
+         * @return latencies of closing the menu
+         */
+        public @NotNull LatencyHistogram getCloses() {
+            return this.closes;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.danikvitek.davilib.menu;
+
+import lombok.NonNull;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Pool of menus, that recycles the menus and their inventories instead of building them for every open.
+ * <p>
+ * Menus are keyed by their type or layout. The first menu created for a key is snapshotted into a
+ * {@link SlotTemplate}, and every released menu is reset to it, so an acquired menu always looks freshly built.
+ * Menus acquired from a pool are returned to it automatically when {@link MenuHandler} closes them for
+ * their last viewer. The amount of idle menus is capped per key and in total, and menus idle for
+ * longer than the timeout are evicted on the next release and by the sweeper of that {@link MenuHandler}.
+ * Menus that keep state beside their slots reset it in {@link Menu#onRecycle()}
+ *
+ * @param <K> type of the keys
+ * @param <M> type of the menus
+ * @apiNote Do not keep references to a pooled menu after it has been closed, as it may be given out again
+ */
+public class MenuPool<K, M extends Menu> {
+    private final Function<? super K, ? extends M> factory;
+    private final int maxIdlePerKey;
+    private final int maxIdleTotal;
+    private final long idleTimeoutNanos;
+    private final ConcurrentMap<K, Bucket<M>> buckets = new ConcurrentHashMap<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+
+    /**
+     * @param factory       the factory that builds a menu for the key
+     * @param maxIdlePerKey maximal amount of idle menus kept per key
+     * @param maxIdleTotal  maximal amount of idle menus kept in the pool
+     * @param idleTimeout   time after which an idle menu is evicted
+     */
+    public MenuPool(final @NotNull @NonNull Function<? super K, ? extends M> factory,
+                    final int maxIdlePerKey,
+                    final int maxIdleTotal,
+                    final @NotNull @NonNull Duration idleTimeout) {
+        if (maxIdlePerKey < 0 || maxIdleTotal < 0) throw new IllegalArgumentException("Caps must not be negative");
+        this.factory = factory;
+        this.maxIdlePerKey = maxIdlePerKey;
+        this.maxIdleTotal = maxIdleTotal;
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+    }
+
+    /**
+     * Creates a pool that keeps up to 16 idle menus per key, 256 in total, for 5 minutes
+     *
+     * @param factory the factory that builds a menu for the key
+     */
+    public MenuPool(final @NotNull Function<? super K, ? extends M> factory) {
+        this(factory, 16, 256, Duration.ofMinutes(5));
+    }
+
+    /**
+     * Gives out an idle menu of the key, or builds a new one if there is none
+     *
+     * @param key the key of the menu
+     * @return the menu in its template state
+     */
+    public @NotNull M acquire(final @NotNull @NonNull K key) {
+        final Bucket<M> bucket = this.buckets.computeIfAbsent(key, k -> new Bucket<>());
+        final Idle<M> idle;
+        synchronized (bucket) {
+            idle = bucket.idle.pollLast();
+        }
+        if (idle != null) {
+            this.idleCount.decrementAndGet();
+            // menus are locked before their buckets when recycled, so not under the bucket lock
+            synchronized (idle.menu) {
+                idle.menu.pooled = false;
+            }
+            return idle.menu;
+        }
+        final M menu = this.factory.apply(key);
+        menu.pool = this;
+        menu.poolKey = key;
+        synchronized (bucket) {
+            if (bucket.template == null) bucket.template = menu.toTemplate();
+        }
+        return menu;
+    }
+
+    /**
+     * Resets the menu to its template state and keeps it for later reuse.
+     * Called by {@link MenuHandler} when the menu is closed for its last viewer
+     *
+     * @param menu the menu acquired from this pool
+     * @throws IllegalStateException if the menu is still opened or kept in a navigation history of a {@link MenuHandler}
+     */
+    public void release(final @NotNull @NonNull M menu) {
+        if (menu.pool != this) throw new IllegalArgumentException("The menu does not belong to this pool");
+        synchronized (menu) {
+            if (menu.viewers != 0 || menu.holds != 0)
+                throw new IllegalStateException("The menu is still in use by a MenuHandler");
+            this.recycle(menu);
+        }
+    }
+
+    /**
+     * Evicts the menus that have been idle for longer than the timeout
+     *
+     * @return the amount of evicted menus
+     */
+    public int evictIdle() {
+        final long now = System.nanoTime();
+        int evicted = 0;
+        for (final Bucket<M> bucket : this.buckets.values()) evicted += this.evictIdle(bucket, now);
+        return evicted;
+    }
+
+    private int evictIdle(final @NotNull Bucket<M> bucket, final long now) {
+        int evicted = 0;
+        synchronized (bucket) {
+            // the oldest menus are at the head
+            for (Iterator<Idle<M>> it = bucket.idle.iterator(); it.hasNext(); ) {
+                if (now - it.next().releasedAt < this.idleTimeoutNanos) break;
+                it.remove();
+                evicted++;
+            }
+        }
+        if (evicted != 0) this.idleCount.addAndGet(-evicted);
+        return evicted;
+    }
+
+    /**
+     * Drops all the idle menus and templates
+     */
+    public void clear() {
+        this.buckets.clear();
+        this.idleCount.set(0);
+    }
+
+    /**
+     * @return the amount of idle menus in the pool
+     */
+    public int getIdleCount() {
+        return this.idleCount.get();
+    }
+
+    @SuppressWarnings("unchecked")
+    void recycle(final @NotNull Menu menu) {
+        final Bucket<M> bucket = this.buckets.get((K) menu.poolKey);
+        if (bucket == null) return;
+        synchronized (menu) {
+            if (menu.pooled) return;
+            menu.pooled = true;
+        }
+        final long now = System.nanoTime();
+        this.evictIdle(bucket, now);
+        synchronized (bucket) {
+            menu.onRecycle();
+            if (bucket.template != null) menu.applyTemplate(bucket.template);
+            if (bucket.idle.size() >= this.maxIdlePerKey) return;
+            if (this.idleCount.incrementAndGet() > this.maxIdleTotal) {
+                this.idleCount.decrementAndGet();
+                return;
+            }
+            bucket.idle.addLast(new Idle<>((M) menu, now));
+        }
+    }
+
+    /**
+     * Template and idle menus of a single key
+     */
+    private static final class Bucket<M extends Menu> {
+        private final ArrayDeque<Idle<M>> idle = new ArrayDeque<>();
+        private @Nullable SlotTemplate template;
+    }
+
+    /**
+     * Idle menu with the time it was released at
+     */
+    private static final class Idle<M extends Menu> {
+        private final M menu;
+        private final long releasedAt;
+
+        private Idle(final @NotNull M menu, final long releasedAt) {
+            this.menu = menu;
+            this.releasedAt = releasedAt;
+        }
+    }
+}
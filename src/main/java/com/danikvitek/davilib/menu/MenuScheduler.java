@@ -0,0 +1,84 @@
+package com.danikvitek.davilib.menu;
+
+import lombok.NonNull;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Routes menu work to the thread that owns it. On classic servers it is the main thread,
+ * on region-threaded forks (Folia) it is the scheduler of the player entity for player work,
+ * and the global region for the rest
+ *
+ * @see MenuHandler#MenuHandler(Plugin, MenuScheduler)
+ * @see ManualMenuScheduler
+ */
+public interface MenuScheduler {
+    /**
+     * Fabric method
+     *
+     * @param plugin the plugin to schedule tasks with
+     * @return the scheduler of the running server: region-threaded if it is supported, main thread otherwise
+     */
+    static @NotNull MenuScheduler of(final @NotNull @NonNull Plugin plugin) {
+        return FoliaMenuScheduler.isSupported() ? new FoliaMenuScheduler(plugin) : new BukkitMenuScheduler(plugin);
+    }
+
+    /**
+     * @param player the player to check
+     * @return {@code true} if the current thread may touch the player and their open inventory
+     */
+    boolean isOwnedByCurrentThread(@NotNull Player player);
+
+    /**
+     * Runs the task on the thread that owns the player, later
+     *
+     * @param player  the player the task works with
+     * @param task    the task to run
+     * @param retired the task to run instead if the player leaves before the task is run. May be not called on
+     *                classic servers, where the task runs regardless
+     */
+    void execute(@NotNull Player player, @NotNull Runnable task, @Nullable Runnable retired);
+
+    /**
+     * Runs the task on the thread that owns the player, later
+     *
+     * @param player the player the task works with
+     * @param task   the task to run
+     */
+    default void execute(final @NotNull Player player, final @NotNull Runnable task) {
+        this.execute(player, task, null);
+    }
+
+    /**
+     * Runs the task on the thread that owns the player: now if it is the current thread, later otherwise
+     *
+     * @param player the player the task works with
+     * @param task   the task to run
+     */
+    default void run(final @NotNull Player player, final @NotNull Runnable task) {
+        if (this.isOwnedByCurrentThread(player)) task.run();
+        else this.execute(player, task);
+    }
+
+    /**
+     * Runs the task every {@code period} ticks on the thread that owns the server-wide state, starting from the next tick
+     *
+     * @param task   the task to run
+     * @param period the period in ticks
+     * @return the handle to cancel the task with
+     */
+    @NotNull Task runRepeating(@NotNull Runnable task, long period);
+
+    /**
+     * Handle of a repeating task
+     */
+    @FunctionalInterface
+    interface Task {
+        /**
+         * Stops the task
+         */
+        void cancel();
+    }
+}
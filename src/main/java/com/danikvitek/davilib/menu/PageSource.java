@@ -0,0 +1,71 @@
+package com.danikvitek.davilib.menu;
+
+import lombok.NonNull;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Source of the entries shown by a {@link PagedMenu}.
+ * Entries are requested page by page, so the source does not have to keep all of them in memory
+ *
+ * @param <T> type of the entries
+ * @apiNote Pages may be fetched off the main thread, if the menu prefetches them
+ */
+@FunctionalInterface
+public interface PageSource<T> {
+    /**
+     * @param offset index of the first entry to fetch
+     * @param limit  maximal amount of entries to fetch
+     * @return at most {@code limit} entries starting from {@code offset}.
+     * Fewer entries mean that the end of the source is reached
+     */
+    @NotNull List<? extends T> fetch(final int offset, final int limit);
+
+    /**
+     * @return total amount of entries, or {@code -1} if it is unknown
+     */
+    default int size() {
+        return -1;
+    }
+
+    /**
+     * Fabric method
+     *
+     * @param entries list of the entries. It is not copied, so later changes of it are visible to the menu
+     * @param <T>     type of the entries
+     * @return sized source over the list
+     */
+    @Contract(value = "_ -> new", pure = true)
+    static <T> @NotNull PageSource<T> of(final @NotNull @NonNull List<? extends T> entries) {
+        return new PageSource<>() {
+            @Override
+            public @NotNull List<? extends T> fetch(final int offset, final int limit) {
+                final int size = entries.size();
+                if (offset >= size) return List.of();
+                return entries.subList(offset, Math.min(size, offset + limit));
+            }
+
+            @Override
+            public int size() {
+                return entries.size();
+            }
+        };
+    }
+
+    /**
+     * Fabric method
+     *
+     * @param entries supplier of a fresh stream of the entries
+     * @param <T>     type of the entries
+     * @return streaming source of unknown size. It keeps the stream open between fetches, so paging forward
+     * continues reading where the previous page ended. Only fetching a page before the last one reopens the stream
+     */
+    @Contract(value = "_ -> new", pure = true)
+    static <T> @NotNull PageSource<T> ofStream(final @NotNull @NonNull Supplier<? extends Stream<? extends T>> entries) {
+        return new StreamPageSource<>(entries);
+    }
+}
@@ -0,0 +1,317 @@
+package com.danikvitek.davilib.menu;
+
+import lombok.NonNull;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Abstract class for chest-based menus that page through a large {@link PageSource}.
+ * <p>
+ * All the rows but the last one show the entries of the current page. The last row is left for
+ * navigation buttons, which the extending class sets in {@link #onPageChange(int)}.
+ * Buttons are created only for the current page. If an executor is given, the neighbouring pages are
+ * prefetched with it in the background, and every page further than one from the current one is evicted.
+ * Turning to a page whose prefetch is still running does not wait for it: the entries are replaced by
+ * a placeholder, see {@link #onPageLoading(int)}, and the page is shown on the thread of the viewer once it is loaded
+ *
+ * @param <T> type of the entries
+ * @param <M> type of the extending class
+ */
+public abstract class PagedMenu<T, M extends PagedMenu<T, M>> extends ChestMenu<M> {
+    private final PageSource<T> source;
+    private final Function<? super T, ? extends Button> mapper;
+    private final @Nullable Executor prefetchExecutor;
+    private final int pageSize;
+    private final ConcurrentMap<Integer, PendingPage> pages = new ConcurrentHashMap<>();
+    private int page = -1;
+    private boolean hasNextPage;
+    /**
+     * Index of the page that is shown once its prefetch completes, or {@code -1} if none
+     */
+    private int loadingPage = -1;
+    /**
+     * The player the menu was last opened for, to show pages loaded in the background to
+     */
+    private volatile @Nullable Player viewer;
+
+    /**
+     * @param title            the title of the menu. If {@code null} then no title will be set
+     * @param rowsCount        amount of rows in the menu, including the navigation row. From 2 to 6
+     * @param source           the source of the entries
+     * @param mapper           the function that creates a button for an entry.
+     *                         If the executor is given, it is called off the main thread
+     * @param prefetchExecutor the executor to prefetch neighbouring pages with. If {@code null} then pages are
+     *                         loaded on demand only
+     */
+    protected PagedMenu(final @Nullable String title,
+                        final int rowsCount,
+                        final @NotNull @NonNull PageSource<T> source,
+                        final @NotNull @NonNull Function<? super T, ? extends Button> mapper,
+                        final @Nullable Executor prefetchExecutor) {
+        super(title, rowsCount);
+        if (rowsCount < 2) throw new IllegalArgumentException("Paged menu needs at least 2 rows");
+        this.source = source;
+        this.mapper = mapper;
+        this.prefetchExecutor = prefetchExecutor;
+        this.pageSize = (rowsCount - 1) * 9;
+    }
+
+    /**
+     * @param title     the title of the menu. If {@code null} then no title will be set
+     * @param rowsCount amount of rows in the menu, including the navigation row. From 2 to 6
+     * @param source    the source of the entries
+     * @param mapper    the function that creates a button for an entry
+     */
+    protected PagedMenu(final @Nullable String title,
+                        final int rowsCount,
+                        final @NotNull PageSource<T> source,
+                        final @NotNull Function<? super T, ? extends Button> mapper) {
+        this(title, rowsCount, source, mapper, null);
+    }
+
+    /**
+     * Shows the page with the given index.
+     * The change becomes visible on the next {@link #flush()}.
+     * If the page is still being prefetched, a placeholder is shown instead,
+     * and the page replaces it and is flushed once it is loaded
+     *
+     * @param page the index of the page, starting from 0
+     * @return this menu. Fluid API
+     */
+    @SuppressWarnings("unchecked")
+    public M setPage(final int page) {
+        if (page < 0) throw new IllegalArgumentException("Page index must not be negative");
+        final PendingPage prefetched = this.pages.get(page);
+        Page shown = null;
+        if (prefetched != null) {
+            // loads the page in place if the prefetch has not started yet
+            prefetched.run();
+            if (!prefetched.future.isDone() && this.showWhenLoaded(page, prefetched)) return (M) this;
+            shown = prefetched.await();
+        }
+        if (shown == null) {
+            shown = this.load(page);
+            this.pages.put(page, new PendingPage(shown));
+        }
+        this.show(page, shown);
+        return (M) this;
+    }
+
+    /**
+     * Shows the placeholder of the page and schedules the page to be shown on the thread of the viewer once it is loaded
+     *
+     * @return {@code false} if the menu has no viewer to schedule on, so the page has to be waited for
+     */
+    private boolean showWhenLoaded(final int page, final @NotNull PendingPage pending) {
+        final MenuScheduler scheduler = this.scheduler;
+        final Player viewer = this.viewer;
+        if (scheduler == null || viewer == null) return false;
+
+        this.page = page;
+        this.hasNextPage = false;
+        this.loadingPage = page;
+        this.clear(SlotRegion.rect(0, 0, SlotRegion.WIDTH - 1, this.pageSize / SlotRegion.WIDTH - 1));
+        this.onPageLoading(page);
+        pending.future.whenComplete((loaded, error) -> scheduler.execute(viewer, () -> {
+            // superseded by another page or recycled in the meantime
+            if (this.loadingPage != page) return;
+            if (loaded != null) this.show(page, loaded);
+            else {
+                this.pages.remove(page, pending);
+                this.setPage(page);
+            }
+            this.flush();
+        }));
+        return true;
+    }
+
+    private void show(final int page, final @NotNull Page shown) {
+        this.page = page;
+        this.hasNextPage = shown.hasNext;
+        this.loadingPage = -1;
+        for (int slot = 0; slot < this.pageSize; slot++)
+            this.setButton(slot, slot < shown.buttons.length ? shown.buttons[slot] : null);
+
+        this.pages.entrySet().removeIf(entry -> {
+            if (Math.abs(entry.getKey() - page) <= 1) return false;
+            entry.getValue().cancel();
+            return true;
+        });
+        if (page > 0) this.prefetch(page - 1);
+        if (shown.hasNext) this.prefetch(page + 1);
+
+        this.onPageChange(page);
+    }
+
+    /**
+     * Shows the next page, if there is one
+     *
+     * @return this menu. Fluid API
+     */
+    @SuppressWarnings("unchecked")
+    public M nextPage() {
+        return this.hasNextPage() ? this.setPage(this.page + 1) : (M) this;
+    }
+
+    /**
+     * Shows the previous page, if there is one
+     *
+     * @return this menu. Fluid API
+     */
+    @SuppressWarnings("unchecked")
+    public M previousPage() {
+        return this.hasPreviousPage() ? this.setPage(this.page - 1) : (M) this;
+    }
+
+    /**
+     * @return the index of the current page, starting from 0
+     */
+    public int getPage() {
+        return Math.max(this.page, 0);
+    }
+
+    /**
+     * @return the amount of pages, or {@code -1} if the size of the source is unknown
+     */
+    public int getPageCount() {
+        final int size = this.source.size();
+        if (size < 0) return -1;
+        return Math.max(1, (size + this.pageSize - 1) / this.pageSize);
+    }
+
+    /**
+     * @return {@code true} if the current page is not the last one
+     */
+    public boolean hasNextPage() {
+        return this.hasNextPage;
+    }
+
+    /**
+     * @return {@code true} if the current page is not the first one
+     */
+    public boolean hasPreviousPage() {
+        return this.page > 0;
+    }
+
+    /**
+     * Called every time a page is shown. Use it to update navigation buttons in the last row
+     *
+     * @param page the index of the shown page
+     */
+    protected void onPageChange(final int page) {
+    }
+
+    /**
+     * Called when the page is still being prefetched, after its entries are cleared.
+     * Use it to show a loading placeholder and to update navigation buttons in the last row
+     *
+     * @param page the index of the page being loaded
+     */
+    protected void onPageLoading(final int page) {
+    }
+
+    @Override
+    void open(final @NotNull @NonNull Player player) {
+        this.viewer = player;
+        if (this.page < 0) this.setPage(0);
+        super.open(player);
+    }
+
+    @Override
+    protected void onRecycle() {
+        super.onRecycle();
+        this.pages.values().forEach(PendingPage::cancel);
+        this.pages.clear();
+        this.page = -1;
+        this.hasNextPage = false;
+        this.loadingPage = -1;
+        this.viewer = null;
+    }
+
+    private void prefetch(final int page) {
+        final Executor executor = this.prefetchExecutor;
+        if (executor == null || this.pages.containsKey(page)) return;
+        final PendingPage pending = new PendingPage(page);
+        if (this.pages.putIfAbsent(page, pending) == null) executor.execute(pending);
+    }
+
+    private @NotNull Page load(final int page) {
+        final List<? extends T> entries = this.source.fetch(page * this.pageSize, this.pageSize + 1);
+        final int count = Math.min(entries.size(), this.pageSize);
+        final Button[] buttons = new Button[count];
+        for (int i = 0; i < count; i++)
+            buttons[i] = this.mapper.apply(entries.get(i));
+        return new Page(buttons, entries.size() > this.pageSize);
+    }
+
+    /**
+     * Page that is loaded either by the prefetch executor or by the first one to need it, whichever comes first
+     */
+    private final class PendingPage implements Runnable {
+        private final int index;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private final CompletableFuture<Page> future = new CompletableFuture<>();
+
+        private PendingPage(final int index) {
+            this.index = index;
+        }
+
+        private PendingPage(final @NotNull Page page) {
+            this.index = -1;
+            this.claimed.set(true);
+            this.future.complete(page);
+        }
+
+        @Override
+        public void run() {
+            if (!this.claimed.compareAndSet(false, true)) return;
+            try {
+                this.future.complete(PagedMenu.this.load(this.index));
+            } catch (RuntimeException e) {
+                this.future.completeExceptionally(e);
+            }
+        }
+
+        /**
+         * Loads the page in place if the prefetch has not started yet, otherwise waits for it.
+         * Only used when there is no viewer to finish the page change on
+         *
+         * @return the page, or {@code null} if loading failed or was cancelled
+         */
+        private @Nullable Page await() {
+            this.run();
+            try {
+                return this.future.join();
+            } catch (RuntimeException e) {
+                return null;
+            }
+        }
+
+        private void cancel() {
+            this.claimed.set(true);
+            this.future.cancel(false);
+        }
+    }
+
+    /**
+     * Materialized page
+     */
+    private static final class Page {
+        private final Button[] buttons;
+        private final boolean hasNext;
+
+        private Page(final Button[] buttons, final boolean hasNext) {
+            this.buttons = buttons;
+            this.hasNext = hasNext;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.danikvitek.davilib.menu;
+
+import lombok.NonNull;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * View of a shared {@link MenuHandler} for a single plugin.
+ * <p>
+ * Menus opened through it are {@link Menu#getOwner() owned} by the plugin, unless their owner is set explicitly,
+ * so they are closed, and their pending opens and async clicks cancelled, when the plugin disables.
+ * Its settings apply only to the menus of the plugin, so plugins sharing the handler do not override each other
+ *
+ * @see MenuHandler#forPlugin(Plugin)
+ */
+public final class PluginMenuHandler {
+    private final MenuHandler menuHandler;
+    private final Plugin plugin;
+    private volatile @Nullable ClickLimiter clickLimiter;
+    /**
+     * Idle timeout of the menus of the plugin, or {@code -1} to use the one of the handler
+     */
+    private volatile long idleTimeoutNanos = -1;
+
+    PluginMenuHandler(final @NotNull MenuHandler menuHandler, final @NotNull Plugin plugin) {
+        this.menuHandler = menuHandler;
+        this.plugin = plugin;
+    }
+
+    /**
+     * @return the plugin of the view
+     */
+    public @NotNull Plugin getPlugin() {
+        return this.plugin;
+    }
+
+    /**
+     * @return the shared handler
+     */
+    public @NotNull MenuHandler getMenuHandler() {
+        return this.menuHandler;
+    }
+
+    /**
+     * Opens the menu for the player on behalf of the plugin
+     *
+     * @param player the player to open menu for
+     * @param menu   the menu to open
+     * @see MenuHandler#openMenu(Player, Menu)
+     */
+    public void openMenu(final @NotNull @NonNull Player player, final @NotNull @NonNull Menu menu) {
+        menu.stampOwner(this.plugin);
+        this.menuHandler.openMenu(player, menu);
+    }
+
+    /**
+     * Builds the menu on the executor and opens it for the player on behalf of the plugin
+     *
+     * @param player      the player to open menu for
+     * @param menuFactory the factory that creates and fills the menu
+     * @param executor    the executor to build the menu with
+     * @param placeholder the menu to show while the build is in flight. If {@code null} then nothing is shown
+     * @param <M>         type of the menu
+     * @return the future that completes with the opened menu. It is also cancelled if the plugin disables
+     * @see MenuHandler#openMenuAsync(Player, Supplier, Executor, Menu)
+     */
+    public <M extends Menu> @NotNull CompletableFuture<M> openMenuAsync(final @NotNull @NonNull Player player,
+                                                                        final @NotNull @NonNull Supplier<? extends M> menuFactory,
+                                                                        final @NotNull @NonNull Executor executor,
+                                                                        final @Nullable Menu placeholder) {
+        return this.menuHandler.openMenuAsync(player, menuFactory, executor, placeholder, this.plugin);
+    }
+
+    /**
+     * @param player the player to navigate
+     * @return {@code true} if there was a menu to go back to
+     * @see MenuHandler#back(Player)
+     */
+    public boolean back(final @NotNull @NonNull Player player) {
+        return this.menuHandler.back(player);
+    }
+
+    /**
+     * @param player the player to navigate
+     * @return {@code true} if there was a menu to go forward to
+     * @see MenuHandler#forward(Player)
+     */
+    public boolean forward(final @NotNull @NonNull Player player) {
+        return this.menuHandler.forward(player);
+    }
+
+    /**
+     * @param player the player to close menu for
+     * @see MenuHandler#closeMenu(Player)
+     */
+    public void closeMenu(final @NotNull @NonNull Player player) {
+        this.menuHandler.closeMenu(player);
+    }
+
+    /**
+     * @param player the player to get a menu of
+     * @return Maybe the opened menu of the player, of any plugin
+     */
+    public Optional<Menu> getMenu(final @NotNull @NonNull Player player) {
+        return this.menuHandler.getMenu(player);
+    }
+
+    /**
+     * Closes the menus of the plugin and cancels their pending opens and async clicks
+     */
+    public void closeAll() {
+        this.menuHandler.closeAll(this.plugin);
+    }
+
+    /**
+     * Sets the limiter that the clicks on the menus of the plugin have to pass
+     *
+     * @param clickLimiter the limiter to use. If {@code null} then the one of the handler is used
+     */
+    public void setClickLimiter(final @Nullable ClickLimiter clickLimiter) {
+        this.clickLimiter = clickLimiter;
+    }
+
+    /**
+     * @return Maybe the limiter of the clicks on the menus of the plugin
+     */
+    public Optional<ClickLimiter> getClickLimiter() {
+        return Optional.ofNullable(this.clickLimiter);
+    }
+
+    /**
+     * Sets the time after which a menu of the plugin without opens and clicks is closed by the sweeper
+     *
+     * @param timeout the idle timeout. If {@code null} then the one of the handler is used, if zero then menus stay opened
+     */
+    public void setIdleTimeout(final @Nullable Duration timeout) {
+        if (timeout != null && timeout.isNegative()) throw new IllegalArgumentException("Idle timeout must not be negative");
+        this.idleTimeoutNanos = timeout != null ? timeout.toNanos() : -1;
+    }
+
+    @Nullable ClickLimiter clickLimiter() {
+        return this.clickLimiter;
+    }
+
+    long idleTimeoutNanos() {
+        return this.idleTimeoutNanos;
+    }
+}
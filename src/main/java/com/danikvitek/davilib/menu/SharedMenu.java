@@ -0,0 +1,282 @@
+package com.danikvitek.davilib.menu;
+
+import lombok.NonNull;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Menu that is viewed by many players through one shared inventory.
+ * <p>
+ * Every viewer may additionally get a sparse overlay of personal buttons, that hide the shared ones in the same slots.
+ * Viewers without an overlay share the base inventory, so changes of the shared buttons are pushed once
+ * for all of them. Only a viewer whose overlay actually differs from the shared buttons is shown a personal copy
+ * of the inventory, thus memory and update cost grow with the amount of distinct contents, not with the amount of viewers.
+ * Overlay of the viewer is dropped when they close the menu or leave the server,
+ * and overlays of players who never opened the menu are dropped when its last viewer closes it
+ *
+ * @apiNote Open it for every viewer with {@link MenuHandler#openMenu}
+ */
+public class SharedMenu extends Menu {
+    private final Function<? super Menu, ? extends Inventory> inventoryFactory;
+    private final ConcurrentMap<UUID, Overlay> overlays = new ConcurrentHashMap<>();
+
+    /**
+     * @param inventoryFactory factory of empty inventories of the same type, size and title, held by the given menu.
+     *                         It is called once for the shared inventory and once per viewer with a differing overlay
+     */
+    public SharedMenu(final @NotNull @NonNull Function<? super Menu, ? extends Inventory> inventoryFactory) {
+        super(inventoryFactory);
+        this.inventoryFactory = inventoryFactory;
+    }
+
+    /**
+     * Sets the personal button of the viewer, that hides the shared button in the same slot.
+     * The change becomes visible on the next {@link #flush()}
+     *
+     * @param viewerId the id of the viewer
+     * @param slot     the slot to set button in. Typically, counted from top left corner to bottom right one
+     * @param button   the button to set in the slot. If {@code null} then the personal button is removed
+     * @return this SharedMenu. Fluent API
+     */
+    public SharedMenu setViewerButton(final @NotNull @NonNull UUID viewerId,
+                                      final int slot,
+                                      final @Nullable Button button) {
+        if (button == null) return this.removeViewerButton(viewerId, slot);
+        this.checkSlot(slot);
+        this.overlays.computeIfAbsent(viewerId, id -> new Overlay()).set(slot, button, button);
+        return this;
+    }
+
+    /**
+     * Sets the personal icon and click handler of the viewer, that hide the shared button in the same slot.
+     * The change becomes visible on the next {@link #flush()}
+     *
+     * @param viewerId the id of the viewer
+     * @param slot     the slot to set button in. Typically, counted from top left corner to bottom right one
+     * @param icon     the icon to show in the slot
+     * @param handler  the handler of the clicks on the slot. If {@code null} then the icon is only decorative
+     * @return this SharedMenu. Fluent API
+     */
+    public SharedMenu setViewerButton(final @NotNull @NonNull UUID viewerId,
+                                      final int slot,
+                                      final @NotNull @NonNull Icon icon,
+                                      final @Nullable ClickHandler handler) {
+        this.checkSlot(slot);
+        this.overlays.computeIfAbsent(viewerId, id -> new Overlay()).set(slot, icon.item(), handler);
+        return this;
+    }
+
+    /**
+     * Removes the personal button of the viewer, uncovering the shared one.
+     * The change becomes visible on the next {@link #flush()}
+     *
+     * @param viewerId the id of the viewer
+     * @param slot     the slot to remove button from. Typically, counted from top left corner to bottom right one
+     * @return this SharedMenu. Fluent API
+     */
+    public SharedMenu removeViewerButton(final @NotNull @NonNull UUID viewerId, final int slot) {
+        this.checkSlot(slot);
+        final Overlay overlay = this.overlays.get(viewerId);
+        if (overlay != null) overlay.remove(slot);
+        return this;
+    }
+
+    /**
+     * Removes all the personal buttons of the viewer.
+     * The change becomes visible on the next {@link #flush()}
+     *
+     * @param viewerId the id of the viewer
+     * @return this SharedMenu. Fluent API
+     */
+    public SharedMenu clearOverlay(final @NotNull @NonNull UUID viewerId) {
+        final Overlay overlay = this.overlays.get(viewerId);
+        if (overlay != null) overlay.clear();
+        return this;
+    }
+
+    @Override
+    protected void onRecycle() {
+        super.onRecycle();
+        this.overlays.clear();
+    }
+
+    /**
+     * @param viewerId the id of the viewer
+     * @param slot     the slot to get handler from. Typically, counted from top left corner to bottom right one
+     * @return the click handler of the slot the viewer sees, or {@code null} if the slot is empty or decorative
+     */
+    public @Nullable ClickHandler getViewerHandler(final @NotNull @NonNull UUID viewerId, final int slot) {
+        this.checkSlot(slot);
+        final Overlay overlay = this.overlays.get(viewerId);
+        if (overlay != null && (overlay.occupied & 1L << slot) != 0) return overlay.handlers[slot];
+        return this.getHandler(slot);
+    }
+
+    /**
+     * Pushes the changed shared slots into the shared inventory and every personal copy,
+     * then pushes the changed personal slots of every viewer
+     *
+     * @return this SharedMenu. Fluent API
+     */
+    @Override
+    public SharedMenu flush() {
+        super.flush();
+        this.overlays.forEach((viewerId, overlay) -> {
+            final Player player = Bukkit.getPlayer(viewerId);
+            if (player == null) this.overlays.remove(viewerId, overlay);
+            else this.flushOverlay(player, overlay);
+        });
+        return this;
+    }
+
+    @Override
+    void flush(final @NotNull MenuScheduler scheduler) {
+        super.flush();
+        this.overlays.forEach((viewerId, overlay) -> {
+            final Player player = Bukkit.getPlayer(viewerId);
+            if (player == null) this.overlays.remove(viewerId, overlay);
+            else if (scheduler.isOwnedByCurrentThread(player)) this.flushOverlay(player, overlay);
+            else scheduler.execute(player, () -> this.flushOverlay(player, overlay));
+        });
+    }
+
+    /**
+     * Pushes the changed personal slots of the viewer. Switches them to a personal copy of the inventory
+     * once the overlay differs from the shared buttons, and back to the shared inventory once it does not
+     */
+    private void flushOverlay(final @NotNull Player player, final @NotNull Overlay overlay) {
+        final Inventory top = player.getOpenInventory().getTopInventory();
+        if (overlay.inventory == null) {
+            if (overlay.differs() && this.getInventory().equals(top)) player.openInventory(overlay.materialize());
+        } else if (!overlay.differs()) {
+            final Inventory copy = overlay.inventory;
+            overlay.inventory = null;
+            if (copy.equals(top)) player.openInventory(this.getInventory());
+        } else overlay.flush();
+    }
+
+    @Override
+    void render(final long mask) {
+        super.render(mask);
+        for (final Overlay overlay : this.overlays.values()) {
+            if (overlay.inventory == null) continue;
+            for (long rest = mask & ~overlay.occupied; rest != 0; rest &= rest - 1) {
+                final int slot = Long.numberOfTrailingZeros(rest);
+                overlay.inventory.setItem(slot, this.itemAt(slot));
+            }
+        }
+    }
+
+    @Override
+    @Nullable ClickHandler viewHandler(final @NotNull UUID viewerId, final int slot) {
+        return slot >= 0 && slot < this.getSize() ? this.getViewerHandler(viewerId, slot) : null;
+    }
+
+    @Override
+    @NotNull Inventory viewInventory(final @NotNull UUID viewerId) {
+        final Overlay overlay = this.overlays.get(viewerId);
+        return overlay != null && overlay.inventory != null ? overlay.inventory : this.getInventory();
+    }
+
+    @Override
+    void onClose(final @NotNull UUID viewerId) {
+        this.overlays.remove(viewerId);
+        synchronized (this) {
+            // the closing viewer is still counted
+            if (this.viewers > 1) return;
+        }
+        this.overlays.values().removeIf(overlay -> !overlay.opened);
+    }
+
+    @Override
+    void open(final @NotNull @NonNull Player player) {
+        final Overlay overlay = this.overlays.get(player.getUniqueId());
+        if (overlay != null) {
+            overlay.opened = true;
+            if (overlay.differs()) overlay.materialize();
+            else overlay.inventory = null;
+        }
+        super.open(player);
+    }
+
+    /**
+     * Personal buttons of a single viewer
+     */
+    private final class Overlay {
+        private final ItemStack[] items = new ItemStack[SharedMenu.this.getSize()];
+        private final ClickHandler[] handlers = new ClickHandler[SharedMenu.this.getSize()];
+        private long occupied;
+        private long dirty;
+        /**
+         * Personal copy of the shared inventory. Created only while the overlay differs from the shared buttons
+         */
+        private @Nullable Inventory inventory;
+        private volatile boolean opened;
+
+        private void set(final int slot, final @NotNull ItemStack item, final @Nullable ClickHandler handler) {
+            this.items[slot] = item;
+            this.handlers[slot] = handler;
+            this.occupied |= 1L << slot;
+            this.dirty |= 1L << slot;
+        }
+
+        private void remove(final int slot) {
+            this.items[slot] = null;
+            this.handlers[slot] = null;
+            this.occupied &= ~(1L << slot);
+            this.dirty |= 1L << slot;
+        }
+
+        private void clear() {
+            for (long rest = this.occupied; rest != 0; rest &= rest - 1) {
+                final int slot = Long.numberOfTrailingZeros(rest);
+                this.items[slot] = null;
+                this.handlers[slot] = null;
+            }
+            this.dirty |= this.occupied;
+            this.occupied = 0;
+        }
+
+        /**
+         * @return {@code true} if some personal button shows another item than the shared one in its slot
+         */
+        private boolean differs() {
+            for (long rest = this.occupied; rest != 0; rest &= rest - 1) {
+                final int slot = Long.numberOfTrailingZeros(rest);
+                final ItemStack shared = SharedMenu.this.itemAt(slot);
+                if (this.items[slot] != shared && !this.items[slot].equals(shared)) return true;
+            }
+            return false;
+        }
+
+        private @NotNull Inventory materialize() {
+            if (this.inventory == null) {
+                this.inventory = SharedMenu.this.inventoryFactory.apply(SharedMenu.this);
+                this.inventory.setContents(SharedMenu.this.getInventory().getContents());
+                this.dirty |= this.occupied;
+            }
+            this.flush();
+            return this.inventory;
+        }
+
+        private void flush() {
+            final Inventory inventory = this.inventory;
+            if (inventory == null) return;
+            for (long rest = this.dirty; rest != 0; rest &= rest - 1) {
+                final int slot = Long.numberOfTrailingZeros(rest);
+                final ItemStack item = this.items[slot];
+                inventory.setItem(slot, item != null ? item : SharedMenu.this.itemAt(slot));
+            }
+            this.dirty = 0;
+        }
+    }
+}
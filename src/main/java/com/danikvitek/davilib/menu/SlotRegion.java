@@ -0,0 +1,265 @@
+package com.danikvitek.davilib.menu;
+
+import lombok.NonNull;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.stream.IntStream;
+
+/**
+ * Immutable set of slots of a 9 columns wide grid, packed into a single {@code long}: bit {@code i} stands for slot {@code i}.
+ * Set operations on regions are single bitwise operations
+ *
+ * @see GridMenu#fill(SlotRegion, Icon, ClickHandler)
+ */
+public final class SlotRegion {
+    /**
+     * Amount of columns in the grid
+     */
+    public static final int WIDTH = 9;
+    private static final int MAX_ROWS = Menu.MAX_SLOTS / WIDTH;
+    private static final int MAX_SLOTS = MAX_ROWS * WIDTH;
+    private static final long FIRST_COLUMN;
+    /**
+     * Slots that leave the grid when moved by {@code dx} columns, at index {@code dx + WIDTH - 1}
+     */
+    private static final long[] COLUMNS_LEAVING = new long[2 * WIDTH - 1];
+    /**
+     * Slots that leave the grid when moved by {@code dy} rows, at index {@code dy + MAX_ROWS - 1}
+     */
+    private static final long[] ROWS_LEAVING = new long[2 * MAX_ROWS - 1];
+
+    static {
+        long column = 0;
+        for (int y = 0; y < MAX_ROWS; y++) column |= 1L << y * WIDTH;
+        FIRST_COLUMN = column;
+        for (int dx = 1 - WIDTH; dx < WIDTH; dx++) COLUMNS_LEAVING[dx + WIDTH - 1] = columnsLeaving(dx);
+        for (int dy = 1 - MAX_ROWS; dy < MAX_ROWS; dy++) ROWS_LEAVING[dy + MAX_ROWS - 1] = rowsLeaving(dy);
+    }
+
+    private static final SlotRegion EMPTY = new SlotRegion(0);
+    /**
+     * Whole grids, at the index of their amount of rows
+     */
+    private static final SlotRegion[] ALL = new SlotRegion[MAX_ROWS + 1];
+
+    static {
+        for (int rows = 1; rows <= MAX_ROWS; rows++) ALL[rows] = rect(0, 0, WIDTH - 1, rows - 1);
+    }
+
+    private final long mask;
+
+    private SlotRegion(final long mask) {
+        this.mask = mask;
+    }
+
+    /**
+     * @return the region without slots
+     */
+    public static @NotNull SlotRegion empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Fabric method
+     *
+     * @param slots the slots of the region. Counted from top left corner to bottom right one
+     * @return the region of the slots
+     */
+    public static @NotNull SlotRegion of(final int @NotNull @NonNull ... slots) {
+        long mask = 0;
+        for (final int slot : slots) {
+            if (slot < 0 || slot >= MAX_SLOTS) throw new IndexOutOfBoundsException("Illegal slot " + slot);
+            mask |= 1L << slot;
+        }
+        return new SlotRegion(mask);
+    }
+
+    /**
+     * Fabric method
+     *
+     * @param fromX left column, inclusive
+     * @param fromY top row, inclusive
+     * @param toX   right column, inclusive
+     * @param toY   bottom row, inclusive
+     * @return the rectangle of slots
+     */
+    public static @NotNull SlotRegion rect(final int fromX, final int fromY, final int toX, final int toY) {
+        if (fromX < 0 || toX >= WIDTH || fromX > toX || fromY < 0 || toY >= MAX_ROWS || fromY > toY)
+            throw new IllegalArgumentException(String.format(
+                    "Illegal rectangle (%d, %d)-(%d, %d)", fromX, fromY, toX, toY));
+        final long row = (-1L >>> (Long.SIZE - (toX - fromX + 1))) << fromX;
+        long mask = 0;
+        for (int y = fromY; y <= toY; y++) mask |= row << y * WIDTH;
+        return new SlotRegion(mask);
+    }
+
+    /**
+     * Fabric method
+     *
+     * @param y the row, from top to bottom
+     * @return all the slots of the row
+     */
+    public static @NotNull SlotRegion row(final int y) {
+        return rect(0, y, WIDTH - 1, y);
+    }
+
+    /**
+     * Fabric method
+     *
+     * @param x    the column, from left to right
+     * @param rows amount of rows in the grid
+     * @return all the slots of the column
+     */
+    public static @NotNull SlotRegion column(final int x, final int rows) {
+        return rect(x, 0, x, rows - 1);
+    }
+
+    /**
+     * Fabric method
+     *
+     * @param rows amount of rows in the grid
+     * @return all the slots of the grid
+     */
+    public static @NotNull SlotRegion all(final int rows) {
+        if (rows > 0 && rows <= MAX_ROWS) return ALL[rows];
+        return rect(0, 0, WIDTH - 1, rows - 1);
+    }
+
+    /**
+     * Fabric method
+     *
+     * @param rows amount of rows in the grid
+     * @return the outer frame of the grid
+     */
+    public static @NotNull SlotRegion border(final int rows) {
+        if (rows <= 2) return all(rows);
+        return all(rows).difference(rect(1, 1, WIDTH - 2, rows - 2));
+    }
+
+    /**
+     * Fabric method
+     *
+     * @param rows amount of rows in the grid
+     * @param even if {@code true} then the top left slot is included
+     * @return every other slot of the grid, like the dark squares of a chessboard
+     */
+    public static @NotNull SlotRegion checkerboard(final int rows, final boolean even) {
+        long mask = 0;
+        for (int slot = 0; slot < rows * WIDTH; slot++)
+            if ((slot / WIDTH + slot % WIDTH) % 2 == (even ? 0 : 1)) mask |= 1L << slot;
+        return new SlotRegion(mask).intersect(all(rows));
+    }
+
+    /**
+     * @param other the region to unite with
+     * @return slots that are in either region
+     */
+    @Contract(pure = true)
+    public @NotNull SlotRegion union(final @NotNull @NonNull SlotRegion other) {
+        return new SlotRegion(this.mask | other.mask);
+    }
+
+    /**
+     * @param other the region to intersect with
+     * @return slots that are in both regions
+     */
+    @Contract(pure = true)
+    public @NotNull SlotRegion intersect(final @NotNull @NonNull SlotRegion other) {
+        return new SlotRegion(this.mask & other.mask);
+    }
+
+    /**
+     * @param other the region to subtract
+     * @return slots of this region that are not in the other one
+     */
+    @Contract(pure = true)
+    public @NotNull SlotRegion difference(final @NotNull @NonNull SlotRegion other) {
+        return new SlotRegion(this.mask & ~other.mask);
+    }
+
+    /**
+     * @param dx columns to move to the right. Negative moves to the left
+     * @param dy rows to move down. Negative moves up
+     * @return the region moved by the offset
+     * @throws IllegalArgumentException if some slot leaves the grid
+     */
+    @Contract(pure = true)
+    public @NotNull SlotRegion translate(final int dx, final int dy) {
+        if (dx <= -WIDTH || dx >= WIDTH || dy <= -MAX_ROWS || dy >= MAX_ROWS
+                || (this.mask & COLUMNS_LEAVING[dx + WIDTH - 1]) != 0 || (this.mask & ROWS_LEAVING[dy + MAX_ROWS - 1]) != 0)
+            throw new IllegalArgumentException(String.format("Region can not be moved by (%d, %d)", dx, dy));
+        final int shift = dy * WIDTH + dx;
+        return new SlotRegion(shift >= 0 ? this.mask << shift : this.mask >>> -shift);
+    }
+
+    private static long columnsLeaving(final int dx) {
+        long mask = 0;
+        if (dx > 0) for (int x = WIDTH - dx; x < WIDTH; x++) mask |= FIRST_COLUMN << x;
+        else for (int x = 0; x < -dx; x++) mask |= FIRST_COLUMN << x;
+        return mask;
+    }
+
+    private static long rowsLeaving(final int dy) {
+        if (dy == 0) return 0;
+        final long row = (1L << WIDTH) - 1;
+        long mask = 0;
+        if (dy > 0) for (int y = MAX_ROWS - dy; y < MAX_ROWS; y++) mask |= row << y * WIDTH;
+        else for (int y = 0; y < -dy; y++) mask |= row << y * WIDTH;
+        return mask;
+    }
+
+    /**
+     * @param slot the slot to check
+     * @return {@code true} if the slot is in the region
+     */
+    public boolean contains(final int slot) {
+        return slot >= 0 && slot < MAX_SLOTS && (this.mask & 1L << slot) != 0;
+    }
+
+    /**
+     * @return amount of slots in the region
+     */
+    public int size() {
+        return Long.bitCount(this.mask);
+    }
+
+    /**
+     * @return {@code true} if the region has no slots
+     */
+    public boolean isEmpty() {
+        return this.mask == 0;
+    }
+
+    /**
+     * @return the slots of the region in ascending order
+     */
+    public @NotNull IntStream slots() {
+        final int[] slots = new int[this.size()];
+        int i = 0;
+        for (long rest = this.mask; rest != 0; rest &= rest - 1) slots[i++] = Long.numberOfTrailingZeros(rest);
+        return IntStream.of(slots);
+    }
+
+    /**
+     * @return the packed slots: bit {@code i} is set if slot {@code i} is in the region
+     */
+    public long toMask() {
+        return this.mask;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        return this == o || o instanceof SlotRegion && this.mask == ((SlotRegion) o).mask;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(this.mask);
+    }
+
+    @Override
+    public String toString() {
+        return "SlotRegion(" + Long.toBinaryString(this.mask) + ")";
+    }
+}
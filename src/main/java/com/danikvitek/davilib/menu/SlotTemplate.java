@@ -0,0 +1,62 @@
+package com.danikvitek.davilib.menu;
+
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Immutable snapshot of the slots of a menu: the shown items and their click handlers.
+ * Applying a template to a menu only copies its arrays, so it is the cheapest way to (re)fill a menu
+ *
+ * @see Menu#toTemplate()
+ * @see Menu#applyTemplate(SlotTemplate)
+ */
+public final class SlotTemplate {
+    private final ItemStack[] items;
+    private final ClickHandler[] handlers;
+    private final long occupied;
+
+    /**
+     * @param items    shown items. The array is owned by the template from now on
+     * @param handlers click handlers. The array is owned by the template from now on
+     */
+    SlotTemplate(final @NotNull ItemStack[] items, final @NotNull ClickHandler[] handlers) {
+        if (items.length != handlers.length) throw new IllegalArgumentException("Arrays must have the same length");
+        if (items.length > Menu.MAX_SLOTS)
+            throw new IllegalArgumentException("Template size must not exceed " + Menu.MAX_SLOTS);
+        long occupied = 0;
+        for (int slot = 0; slot < items.length; slot++) {
+            if (items[slot] != null) occupied |= 1L << slot;
+            else if (handlers[slot] != null) throw new IllegalArgumentException("Handler without an item at slot " + slot);
+        }
+        this.items = items;
+        this.handlers = handlers;
+        this.occupied = occupied;
+    }
+
+    /**
+     * @return the amount of slots in the template
+     */
+    public int getSize() {
+        return this.items.length;
+    }
+
+    /**
+     * @param slot the slot to check. Typically, counted from top left corner to bottom right one
+     * @return {@code true} if the template has a button or an icon in the slot
+     */
+    public boolean isOccupied(final int slot) {
+        return slot >= 0 && slot < this.items.length && (this.occupied & 1L << slot) != 0;
+    }
+
+    @NotNull ItemStack[] items() {
+        return this.items;
+    }
+
+    @NotNull ClickHandler[] handlers() {
+        return this.handlers;
+    }
+
+    long occupied() {
+        return this.occupied;
+    }
+}
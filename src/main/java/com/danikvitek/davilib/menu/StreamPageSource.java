@@ -0,0 +1,63 @@
+package com.danikvitek.davilib.menu;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Page source over a stream, that keeps a cursor between fetches.
+ * The entries of the last fetch are kept too, as a page is fetched with one entry of the next page to look ahead
+ *
+ * @param <T> type of the entries
+ * @see PageSource#ofStream(Supplier)
+ */
+final class StreamPageSource<T> implements PageSource<T> {
+    private final Supplier<? extends Stream<? extends T>> entries;
+    private @Nullable Stream<? extends T> stream;
+    private @Nullable Iterator<? extends T> cursor;
+    /**
+     * Index of the entry the cursor returns next
+     */
+    private int position;
+    /**
+     * Entries from {@link #bufferStart} up to {@link #position}
+     */
+    private List<T> buffer = List.of();
+    private int bufferStart;
+
+    StreamPageSource(final @NotNull Supplier<? extends Stream<? extends T>> entries) {
+        this.entries = entries;
+    }
+
+    @Override
+    public synchronized @NotNull List<? extends T> fetch(final int offset, final int limit) {
+        if (this.cursor == null || offset < this.bufferStart || offset > this.position) this.restart(offset);
+        final Iterator<? extends T> cursor = this.cursor;
+        final List<T> page = new ArrayList<>(limit);
+        for (int i = offset; i < this.position && page.size() < limit; i++) page.add(this.buffer.get(i - this.bufferStart));
+        if (page.size() < limit || offset + page.size() == this.position) {
+            while (page.size() < limit && cursor.hasNext()) {
+                page.add(cursor.next());
+                this.position++;
+            }
+            this.buffer = page;
+            this.bufferStart = offset;
+        }
+        return page;
+    }
+
+    private void restart(final int offset) {
+        if (this.stream != null) this.stream.close();
+        final Stream<? extends T> stream = this.entries.get();
+        this.stream = stream;
+        this.cursor = stream.skip(offset).iterator();
+        this.position = offset;
+        this.buffer = List.of();
+        this.bufferStart = offset;
+    }
+}
@@ -0,0 +1,212 @@
+package com.danikvitek.davilib.util;
+
+import lombok.NonNull;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Reusable index for tab completion, that replaces scanning with {@link StringUtil#copyPartialInnerMatches(String, List)}.
+ * <p>
+ * Entries are kept in sorted order for prefix lookups and in an index of their substrings of up to 3 characters
+ * for inner matches, so even one-character queries do not scan all the entries.
+ * Both are updated incrementally, so the index is built once and then follows additions and removals.
+ * Queries return prefix matches first, then inner matches ranked by the position of the match.
+ * The index is thread-safe, so it may be queried from the asynchronous tab completion thread
+ */
+public class CompletionIndex {
+    private static final int MAX_GRAM = 3;
+
+    private final boolean ignoreCase;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    /**
+     * Normalized key to the original entry
+     */
+    private final NavigableMap<String, String> entries = new TreeMap<>();
+    /**
+     * Packed substring of 1 to 3 characters to the normalized keys containing it
+     */
+    private final Map<Long, Set<String>> grams = new HashMap<>();
+
+    /**
+     * @param ignoreCase whether to match entries regardless of their case.
+     *                   Entries that differ only in case are then stored once
+     */
+    public CompletionIndex(final boolean ignoreCase) {
+        this.ignoreCase = ignoreCase;
+    }
+
+    /**
+     * Creates a case-sensitive index
+     */
+    public CompletionIndex() {
+        this(false);
+    }
+
+    /**
+     * Fabric method
+     *
+     * @param entries    the entries to index
+     * @param ignoreCase whether to match entries regardless of their case
+     * @return new index of the entries
+     */
+    @Contract("_, _ -> new")
+    public static @NotNull CompletionIndex of(final @NotNull @NonNull Collection<String> entries, final boolean ignoreCase) {
+        final CompletionIndex index = new CompletionIndex(ignoreCase);
+        index.addAll(entries);
+        return index;
+    }
+
+    /**
+     * @param entry the entry to add
+     * @return {@code true} if the entry was not present
+     */
+    public boolean add(final @NotNull @NonNull String entry) {
+        final String key = this.normalize(entry);
+        this.lock.writeLock().lock();
+        try {
+            if (this.entries.putIfAbsent(key, entry) != null) return false;
+            for (int length = 1; length <= MAX_GRAM; length++)
+                for (int i = 0; i + length <= key.length(); i++)
+                    this.grams.computeIfAbsent(gram(key, i, length), g -> new HashSet<>()).add(key);
+            return true;
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param entries the entries to add
+     */
+    public void addAll(final @NotNull @NonNull Collection<String> entries) {
+        for (final String entry : entries) this.add(entry);
+    }
+
+    /**
+     * @param entry the entry to remove
+     * @return {@code true} if the entry was present
+     */
+    public boolean remove(final @NotNull @NonNull String entry) {
+        final String key = this.normalize(entry);
+        this.lock.writeLock().lock();
+        try {
+            if (this.entries.remove(key) == null) return false;
+            for (int length = 1; length <= MAX_GRAM; length++)
+                for (int i = 0; i + length <= key.length(); i++) {
+                    final Long gram = gram(key, i, length);
+                    final Set<String> keys = this.grams.get(gram);
+                    if (keys != null && keys.remove(key) && keys.isEmpty()) this.grams.remove(gram);
+                }
+            return true;
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes all the entries
+     */
+    public void clear() {
+        this.lock.writeLock().lock();
+        try {
+            this.entries.clear();
+            this.grams.clear();
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the amount of entries
+     */
+    public int size() {
+        this.lock.readLock().lock();
+        try {
+            return this.entries.size();
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param what  string to filter by
+     * @param limit maximal amount of results
+     * @return at most {@code limit} entries that contain {@code what}:
+     * entries starting with it in sorted order, then the rest ordered by the position of the match
+     */
+    public @NotNull List<String> complete(final @NotNull @NonNull String what, final int limit) {
+        if (limit <= 0) return new ArrayList<>(0);
+        final String query = this.normalize(what);
+        final List<String> result = new ArrayList<>(Math.min(limit, 16));
+        this.lock.readLock().lock();
+        try {
+            for (final String entry : this.entries.subMap(query, true, query + Character.MAX_VALUE, false).values()) {
+                if (result.size() == limit) return result;
+                result.add(entry);
+            }
+            if (query.isEmpty() || result.size() == limit) return result;
+
+            this.lookupInnerMatches(query, limit, result);
+            return result;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds the best ranked entries that contain the query, but do not start with it, as those are already added
+     */
+    private void lookupInnerMatches(final @NotNull String query, final int limit, final @NotNull List<String> result) {
+        final int length = Math.min(query.length(), MAX_GRAM);
+        Set<String> candidates = null;
+        for (int i = 0; i + length <= query.length(); i++) {
+            final Set<String> keys = this.grams.get(gram(query, i, length));
+            if (keys == null) return;
+            if (candidates == null || keys.size() < candidates.size()) candidates = keys;
+        }
+        if (candidates == null) return;
+
+        final Comparator<String> rank = Comparator.<String>comparingInt(key -> key.indexOf(query, 1))
+                .thenComparingInt(String::length)
+                .thenComparing(Comparator.naturalOrder());
+        // keeps only the best ones, so ranking a large candidate set does not sort all of it
+        final int wanted = limit - result.size();
+        final PriorityQueue<String> best = new PriorityQueue<>(Math.min(wanted, 16) + 1, rank.reversed());
+        for (final String key : candidates) {
+            if (key.startsWith(query) || key.indexOf(query, 1) < 0) continue;
+            best.add(key);
+            if (best.size() > wanted) best.poll();
+        }
+        final String[] matches = best.toArray(new String[0]);
+        Arrays.sort(matches, rank);
+        for (final String key : matches) result.add(this.entries.get(key));
+    }
+
+    private @NotNull String normalize(final @NotNull String entry) {
+        return this.ignoreCase ? entry.toLowerCase(Locale.ROOT) : entry;
+    }
+
+    /**
+     * @return the substring packed 16 bits per character after its length, so substrings of different lengths never collide
+     */
+    private static long gram(final @NotNull String key, final int from, final int length) {
+        long gram = length;
+        for (int i = from; i < from + length; i++) gram = gram << 16 | key.charAt(i);
+        return gram;
+    }
+}
@@ -17,6 +17,7 @@ public class StringUtil {
      * @param what  string to filter by
      * @param where list to copy from
      * @return List of strings that contain {@code what}
+     * @apiNote Scans the whole list on every call. For large lists queried repeatedly use {@link CompletionIndex}
      */
     public List<String> copyPartialInnerMatches(final @NotNull @NonNull String what,
                                                 final @NotNull @NonNull List<String> where) {